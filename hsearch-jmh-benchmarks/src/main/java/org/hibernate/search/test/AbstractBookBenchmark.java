@@ -0,0 +1,174 @@
+package org.hibernate.search.test;
+
+import java.io.File;
+
+import org.apache.lucene.analysis.core.StopAnalyzer;
+import org.apache.lucene.util.Version;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.cfg.Configuration;
+import org.hibernate.cfg.Environment;
+
+/**
+ * Base class for the benchmarks running against the {@code Book}/{@code Author} data set. Holds the data set
+ * parameters and takes care of building the session factory for the selected database.
+ */
+@State(Scope.Benchmark)
+public abstract class AbstractBookBenchmark {
+	protected static final int MAX_AUTHORS_PER_BOOK = 5;
+	protected static final String NATIVE_LUCENE_INDEX_DIR = "target/native-lucene";
+	protected static final String HSEARCH_LUCENE_INDEX_DIR = "target/hsearch-lucene";
+	private static final String H2_DATABASE_DIR = "target/h2";
+
+	/**
+	 * Either {@code h2} for an embedded database filled with synthetic data or {@code mysql} for a local MySQL
+	 * database loaded with the isbndb.com data (see the isbndb directory). The remaining parameters are ignored
+	 * for {@code mysql}.
+	 */
+	@Param({ "h2" })
+	public String database;
+
+	@Param({ "10000", "100000", "1000000", "10000000" })
+	public int numberOfBooks;
+
+	/**
+	 * The number of distinct authors relative to the number of books.
+	 */
+	@Param({ "0.25" })
+	public double authorsToBooksRatio;
+
+	/**
+	 * The Zipf exponent of the number of authors per book.
+	 */
+	@Param({ "1.5" })
+	public double authorsPerBookSkew;
+
+	/**
+	 * The Zipf exponent of the number of books per author.
+	 */
+	@Param({ "1.0" })
+	public double booksPerAuthorSkew;
+
+	protected String expectedTopAuthor;
+	protected int expectedTopAuthorCount;
+
+	private String dataSetName;
+
+	/**
+	 * Builds the session factory for the configured database, generating the data set if required.
+	 *
+	 * @return the session factory
+	 */
+	protected SessionFactory openDataSet() {
+		TestDataGenerator dataGenerator = null;
+		if ( "h2".equals( database ) ) {
+			dataGenerator = new TestDataGenerator(
+					numberOfBooks,
+					getNumberOfAuthors(),
+					MAX_AUTHORS_PER_BOOK,
+					authorsPerBookSkew,
+					booksPerAuthorSkew
+			);
+			dataSetName = dataGenerator.getDataSetName();
+		}
+		else if ( "mysql".equals( database ) ) {
+			dataSetName = "isbndb";
+		}
+		else {
+			throw new IllegalArgumentException( "Unknown database: " + database );
+		}
+
+		SessionFactory sessionFactory = buildConfiguration().buildSessionFactory();
+		if ( dataGenerator != null ) {
+			dataGenerator.populate( sessionFactory );
+		}
+		return sessionFactory;
+	}
+
+	protected int getNumberOfAuthors() {
+		return Math.max( 1, (int) ( numberOfBooks * authorsToBooksRatio ) );
+	}
+
+	/**
+	 * @return the name of the data set, only available after {@link #openDataSet()}
+	 */
+	protected String getDataSetName() {
+		return dataSetName;
+	}
+
+	protected File getNativeIndexDir() {
+		return new File( NATIVE_LUCENE_INDEX_DIR, dataSetName );
+	}
+
+	protected File getHSearchIndexDir() {
+		return new File( HSEARCH_LUCENE_INDEX_DIR, dataSetName );
+	}
+
+	/**
+	 * Builds the Hibernate configuration. Subclasses can override this method to adjust the configuration.
+	 *
+	 * @return the configuration
+	 */
+	protected Configuration buildConfiguration() {
+		Configuration cfg = new Configuration();
+
+		// ORM config
+		if ( "h2".equals( database ) ) {
+			cfg.setProperty( Environment.DIALECT, "org.hibernate.dialect.H2Dialect" );
+			cfg.setProperty( Environment.DRIVER, "org.h2.Driver" );
+			cfg.setProperty( Environment.URL, "jdbc:h2:./" + H2_DATABASE_DIR + "/" + dataSetName );
+			cfg.setProperty( Environment.USER, "sa" );
+			cfg.setProperty( Environment.PASS, "" );
+			cfg.setProperty( Environment.HBM2DDL_AUTO, "update" );
+		}
+		else {
+			cfg.setProperty( Environment.DIALECT, "org.hibernate.dialect.MySQL5InnoDBDialect" );
+			cfg.setProperty( Environment.DRIVER, "com.mysql.jdbc.Driver" );
+			cfg.setProperty( Environment.URL, "jdbc:mysql://localhost/books" );
+			cfg.setProperty( Environment.USER, "hibernate" );
+			cfg.setProperty( Environment.PASS, "hibernate" );
+		}
+
+		cfg.setProperty( Environment.SHOW_SQL, "false" );
+		cfg.setProperty( Environment.FORMAT_SQL, "false" );
+
+		// Search config
+		cfg.setProperty( "hibernate.search.lucene_version", Version.LUCENE_4_10_3.toString() );
+		cfg.setProperty( "hibernate.search.default.directory_provider", "filesystem" );
+		cfg.setProperty( "hibernate.search.default.indexBase", getHSearchIndexDir().getPath() );
+		cfg.setProperty( org.hibernate.search.cfg.Environment.ANALYZER_CLASS, StopAnalyzer.class.getName() );
+		cfg.setProperty( "hibernate.search.default.indexwriter.merge_factor", "100" );
+		cfg.setProperty( "hibernate.search.default.indexwriter.max_buffered_docs", "1000" );
+
+		// configured classes
+		cfg.addAnnotatedClass( Book.class );
+		cfg.addAnnotatedClass( Author.class );
+
+		return cfg;
+	}
+
+	/**
+	 * Determines the author with the most books from the database, so that the faceting results can be verified
+	 * for any data set.
+	 */
+	protected void determineExpectedTopAuthor(SessionFactory sessionFactory) {
+		Session session = sessionFactory.openSession();
+		try {
+			Object[] topAuthor = (Object[]) session.createQuery(
+					"select a.name, count(distinct b.id) from Book b join b.authors a " +
+							"group by a.name order by count(distinct b.id) desc"
+			)
+					.setMaxResults( 1 )
+					.uniqueResult();
+			expectedTopAuthor = (String) topAuthor[0];
+			expectedTopAuthorCount = ( (Long) topAuthor[1] ).intValue();
+		}
+		finally {
+			session.close();
+		}
+	}
+}
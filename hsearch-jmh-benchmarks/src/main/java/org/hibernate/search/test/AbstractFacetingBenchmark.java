@@ -0,0 +1,395 @@
+package org.hibernate.search.test;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.lucene.facet.FacetResult;
+import org.apache.lucene.facet.FacetsCollector;
+import org.apache.lucene.facet.sortedset.SortedSetDocValuesFacetCounts;
+import org.apache.lucene.facet.sortedset.SortedSetDocValuesReaderState;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.MultiFields;
+import org.apache.lucene.index.NoMergePolicy;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.index.TermsEnum;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.FSDirectory;
+import org.apache.lucene.util.BytesRef;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import org.hibernate.CacheMode;
+import org.hibernate.FetchMode;
+import org.hibernate.FlushMode;
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.Transaction;
+import org.hibernate.search.FullTextQuery;
+import org.hibernate.search.FullTextSession;
+import org.hibernate.search.Search;
+import org.hibernate.search.indexes.IndexReaderAccessor;
+import org.hibernate.search.query.dsl.QueryBuilder;
+import org.hibernate.search.query.facet.Facet;
+import org.hibernate.search.query.facet.FacetSortOrder;
+import org.hibernate.search.query.facet.FacetingRequest;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Base class for the benchmarks faceting on the author names. Builds the Hibernate Search and the native Lucene
+ * index for the data set if they don't exist yet and provides the faceting requests for both engines.
+ */
+@State(Scope.Benchmark)
+public abstract class AbstractFacetingBenchmark extends AbstractBookBenchmark {
+	protected static final String AUTHOR_NAME_FACET = "authorNameFacet";
+	protected static final String AUTHOR_NAME_FIELD = "authors.name_untokenized";
+	protected static final int MAX_FACET_COUNT = 10;
+	protected static final String TITLE_FIELD = "title";
+	private static final String SEGMENTED_NATIVE_LUCENE_INDEX_DIR = "target/native-lucene-segments";
+	private static final int BATCH_SIZE = 25;
+	private static final int MAX_GC_RUNS = 10;
+	private static final double RAM_BUFFER_SIZE_MB = 64;
+
+	protected SessionFactory sessionFactory;
+
+	/**
+	 * Opens the data set and builds the indexes if required.
+	 */
+	protected void setUpIndexes() throws Exception {
+		sessionFactory = openDataSet();
+		if ( needsIndexing() ) {
+			createNativeLuceneIndex();
+			indexTestData();
+		}
+		determineExpectedTopAuthor( sessionFactory );
+	}
+
+	@TearDown
+	public void closeSessionFactory() {
+		sessionFactory.close();
+	}
+
+	protected FacetingRequest createAuthorFacetingRequest(FullTextSession fullTextSession) {
+		QueryBuilder builder = fullTextSession.getSearchFactory().buildQueryBuilder().forEntity( Book.class ).get();
+		return createAuthorFacetingRequest( builder );
+	}
+
+	protected FacetingRequest createAuthorFacetingRequest(QueryBuilder builder) {
+		return builder.facet()
+				.name( AUTHOR_NAME_FACET )
+				.onField( AUTHOR_NAME_FIELD )
+				.discrete()
+				.orderedBy( FacetSortOrder.COUNT_DESC )
+				.includeZeroCounts( false )
+				.maxFacetCount( MAX_FACET_COUNT )
+				.createFacetingRequest();
+	}
+
+	/**
+	 * Facets on the author names of the books matching the given query, using Hibernate Search.
+	 */
+	protected List<Facet> hsearchFaceting(FullTextSession fullTextSession, Query query) {
+		FullTextQuery fullTextQuery = fullTextSession.createFullTextQuery( query, Book.class );
+		return fullTextQuery.getFacetManager()
+				.enableFaceting( createAuthorFacetingRequest( fullTextSession ) )
+				.getFacets( AUTHOR_NAME_FACET );
+	}
+
+	/**
+	 * Facets on the author names of the books matching the given query, using Lucene's dynamic faceting.
+	 */
+	protected FacetResult luceneFaceting(IndexSearcher searcher,
+			SortedSetDocValuesReaderState docValuesReaderState,
+			Query query) throws IOException {
+		FacetsCollector facetsCollector = new FacetsCollector();
+
+		searcher.search( query, facetsCollector );
+
+		// get facet results
+		SortedSetDocValuesFacetCounts facets = new SortedSetDocValuesFacetCounts(
+				docValuesReaderState, facetsCollector
+		);
+		return facets.getTopChildren( MAX_FACET_COUNT, AUTHOR_NAME_FIELD );
+	}
+
+	/**
+	 * Asserts the facets on all books.
+	 */
+	protected void assertTopAuthor(List<Facet> facets) {
+		assertEquals( "Wrong facet count", MAX_FACET_COUNT, facets.size() );
+		assertEquals( "Wrong facet ", expectedTopAuthor, facets.get( 0 ).getValue() );
+		assertEquals( "Wrong facet value count", expectedTopAuthorCount, facets.get( 0 ).getCount() );
+	}
+
+	/**
+	 * Asserts the facets on all books.
+	 */
+	protected void assertTopAuthor(FacetResult topFacetResult) {
+		assertEquals(
+				"Wrong facet ",
+				expectedTopAuthor,
+				topFacetResult.labelValues[0].label
+		);
+		assertEquals(
+				"Wrong facet value count",
+				expectedTopAuthorCount,
+				(int) topFacetResult.labelValues[0].value
+		);
+	}
+
+	/**
+	 * Asserts the facets on all books.
+	 */
+	protected void assertTopAuthor(OrdinalFacetCollector collector) throws IOException {
+		assertEquals( "Wrong facet count", MAX_FACET_COUNT, collector.selectedValues() );
+		assertEquals( "Wrong facet ", expectedTopAuthor, collector.getTopLabel( 0 ) );
+		assertEquals( "Wrong facet value count", expectedTopAuthorCount, collector.getTopCount( 0 ) );
+	}
+
+	/**
+	 * Returns the title terms of the native index which match as many books in the Hibernate Search index. The
+	 * native index analyzes the titles with the {@code StandardAnalyzer}, Hibernate Search with the
+	 * {@code StopAnalyzer}, so stop words and terms with digits or apostrophes only exist in one of them.
+	 *
+	 * @param nativeReader a reader of the native index
+	 *
+	 * @return the terms in index order, with their document frequency
+	 */
+	protected Map<Term, Integer> getCommonTitleTerms(IndexReader nativeReader) throws IOException {
+		Map<Term, Integer> terms = new LinkedHashMap<Term, Integer>();
+		FullTextSession fullTextSession = Search.getFullTextSession( sessionFactory.openSession() );
+		try {
+			IndexReaderAccessor readerAccessor = fullTextSession.getSearchFactory().getIndexReaderAccessor();
+			IndexReader hsearchReader = readerAccessor.open( Book.class );
+			try {
+				TermsEnum termsEnum = MultiFields.getTerms( nativeReader, TITLE_FIELD ).iterator( null );
+				BytesRef text;
+				while ( ( text = termsEnum.next() ) != null ) {
+					Term term = new Term( TITLE_FIELD, BytesRef.deepCopyOf( text ) );
+					if ( hsearchReader.docFreq( term ) == termsEnum.docFreq() ) {
+						terms.put( term, termsEnum.docFreq() );
+					}
+				}
+			}
+			finally {
+				readerAccessor.close( hsearchReader );
+			}
+		}
+		finally {
+			fullTextSession.close();
+		}
+		return terms;
+	}
+
+	protected Directory openNativeIndexDirectory() throws IOException {
+		return FSDirectory.open( getNativeIndexDir() );
+	}
+
+	/**
+	 * Returns the directory of a native index with the given number of segments, building the index if it doesn't
+	 * exist yet. The index is built by a single worker flushing a new segment every {@code books / segments}
+	 * documents, without merging.
+	 *
+	 * @param segments the number of segments
+	 *
+	 * @return the index directory
+	 */
+	protected File getSegmentedNativeIndexDir(int segments) throws Exception {
+		File indexDir = new File( new File( SEGMENTED_NATIVE_LUCENE_INDEX_DIR, getDataSetName() ), "segments-" + segments );
+		if ( indexDir.exists() ) {
+			return indexDir;
+		}
+
+		IndexWriterConfig iwc = NativeLuceneIndexer.createIndexWriterConfig();
+		iwc.setOpenMode( IndexWriterConfig.OpenMode.CREATE );
+		iwc.setMergePolicy( NoMergePolicy.INSTANCE );
+		iwc.setMaxBufferedDocs( getDocumentsPerSegment( segments ) );
+		iwc.setRAMBufferSizeMB( IndexWriterConfig.DISABLE_AUTO_FLUSH );
+
+		Directory dir = FSDirectory.open( indexDir );
+		IndexWriter writer = new IndexWriter( dir, iwc );
+		try {
+			new NativeLuceneIndexer( sessionFactory, 1, 0 ).index( writer );
+		}
+		finally {
+			writer.close();
+			dir.close();
+		}
+		return indexDir;
+	}
+
+	/**
+	 * @return the number of documents per segment for an index of all books with the given number of segments
+	 */
+	protected int getDocumentsPerSegment(int segments) {
+		long numberOfBooks;
+		Session session = sessionFactory.openSession();
+		try {
+			numberOfBooks = (Long) session.createQuery( "select count(*) from Book" ).uniqueResult();
+		}
+		finally {
+			session.close();
+		}
+		// at least two, the minimum for max_buffered_docs
+		return (int) Math.max( 2, ( numberOfBooks + segments - 1 ) / segments );
+	}
+
+	/**
+	 * @return the total size of the files in the given directory, in bytes
+	 */
+	protected static long sizeOf(Directory directory) throws IOException {
+		long size = 0;
+		for ( String file : directory.listAll() ) {
+			size += directory.fileLength( file );
+		}
+		return size;
+	}
+
+	/**
+	 * @return the heap used right after the last full garbage collection, collecting until it doesn't shrink any
+	 * further. Taken from the collection usage of the heap pools, so allocations after the collection don't count.
+	 */
+	protected static long usedHeapAfterGc() {
+		long used = Long.MAX_VALUE;
+		for ( int i = 0; i < MAX_GC_RUNS; i++ ) {
+			System.gc();
+			long usedAfterGc = 0;
+			for ( MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans() ) {
+				if ( pool.getType() == MemoryType.HEAP && pool.getCollectionUsage() != null ) {
+					usedAfterGc += pool.getCollectionUsage().getUsed();
+				}
+			}
+			if ( usedAfterGc >= used ) {
+				return usedAfterGc;
+			}
+			used = usedAfterGc;
+		}
+		return used;
+	}
+
+	/**
+	 * Copies the given directory recursively, replacing existing files.
+	 */
+	protected static void copyDirectory(final Path source, final Path target) throws IOException {
+		Files.walkFileTree(
+				source, new SimpleFileVisitor<Path>() {
+					@Override
+					public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
+						Files.createDirectories( target.resolve( source.relativize( dir ) ) );
+						return FileVisitResult.CONTINUE;
+					}
+
+					@Override
+					public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+						Files.copy(
+								file, target.resolve( source.relativize( file ) ), StandardCopyOption.REPLACE_EXISTING
+						);
+						return FileVisitResult.CONTINUE;
+					}
+				}
+		);
+	}
+
+	/**
+	 * Deletes the given directory recursively, if it exists.
+	 */
+	protected static void deleteDirectory(Path dir) throws IOException {
+		if ( !Files.exists( dir ) ) {
+			return;
+		}
+		Files.walkFileTree(
+				dir, new SimpleFileVisitor<Path>() {
+					@Override
+					public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+						Files.delete( file );
+						return FileVisitResult.CONTINUE;
+					}
+
+					@Override
+					public FileVisitResult postVisitDirectory(Path dir, IOException e) throws IOException {
+						Files.delete( dir );
+						return FileVisitResult.CONTINUE;
+					}
+				}
+		);
+	}
+
+	private void indexTestData() throws Exception {
+		FullTextSession fullTextSession = Search.getFullTextSession( sessionFactory.openSession() );
+		fullTextSession.setFlushMode( FlushMode.MANUAL );
+		fullTextSession.setCacheMode( CacheMode.IGNORE );
+		Transaction transaction = fullTextSession.beginTransaction();
+		// authors are loaded by a separate select, joining them would return one row (and book) per author
+		ScrollableResults results = fullTextSession.createCriteria( Book.class )
+				.setFetchMode( "authors", FetchMode.SELECT )
+				.setFetchSize( BATCH_SIZE )
+				.scroll( ScrollMode.FORWARD_ONLY );
+		int index = 0;
+		while ( results.next() ) {
+			index++;
+			Book book = (Book) results.get( 0 );
+			indexBookHSearch( fullTextSession, book );
+			if ( index % BATCH_SIZE == 0 ) {
+				fullTextSession.flushToIndexes();
+				fullTextSession.clear();
+			}
+		}
+		transaction.commit();
+		fullTextSession.close();
+	}
+
+	private void indexBookHSearch(FullTextSession fullTextSession, Book book) {
+		fullTextSession.index( book );
+	}
+
+	private boolean needsIndexing() {
+		File nativeLuceneIndexDir = getNativeIndexDir();
+		if ( !nativeLuceneIndexDir.exists() ) {
+			return true;
+		}
+
+		File hsearchLuceneIndexDir = getHSearchIndexDir();
+		if ( !hsearchLuceneIndexDir.exists() ) {
+			return true;
+		}
+
+		return false;
+	}
+
+	private void createNativeLuceneIndex() throws Exception {
+		Directory dir = openNativeIndexDirectory();
+		IndexWriterConfig iwc = NativeLuceneIndexer.createIndexWriterConfig();
+		// Create a new index in the directory, removing any
+		// previously indexed documents:
+		iwc.setOpenMode( IndexWriterConfig.OpenMode.CREATE );
+		iwc.setRAMBufferSizeMB( RAM_BUFFER_SIZE_MB );
+
+		IndexWriter writer = new IndexWriter( dir, iwc );
+		try {
+			new NativeLuceneIndexer( sessionFactory, Runtime.getRuntime().availableProcessors(), 0 ).index( writer );
+		}
+		finally {
+			writer.close();
+			dir.close();
+		}
+	}
+}
@@ -1,10 +1,14 @@
 package org.hibernate.search.test;
 
+import java.util.HashSet;
+import java.util.Set;
 import javax.persistence.Entity;
 import javax.persistence.GeneratedValue;
 import javax.persistence.Id;
+import javax.persistence.ManyToMany;
 
 import org.hibernate.search.annotations.Analyze;
+import org.hibernate.search.annotations.ContainedIn;
 import org.hibernate.search.annotations.DocumentId;
 import org.hibernate.search.annotations.Facet;
 import org.hibernate.search.annotations.Field;
@@ -22,6 +26,11 @@ public class Author {
 	@Facet(forField = "name_untokenized")
 	private String name;
 
+	// reindexes the books of an author when it changes
+	@ManyToMany(mappedBy = "authors")
+	@ContainedIn
+	private Set<Book> books = new HashSet<Book>();
+
 	public Integer getId() {
 		return id;
 	}
@@ -38,6 +47,14 @@ public class Author {
 		this.name = name;
 	}
 
+	public Set<Book> getBooks() {
+		return books;
+	}
+
+	public void setBooks(Set<Book> books) {
+		this.books = books;
+	}
+
 	@Override
 	public boolean equals(Object o) {
 		if ( this == o ) {
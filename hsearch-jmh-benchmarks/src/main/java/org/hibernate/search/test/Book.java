@@ -7,10 +7,13 @@ import javax.persistence.Entity;
 import javax.persistence.FetchType;
 import javax.persistence.GeneratedValue;
 import javax.persistence.Id;
+import javax.persistence.JoinColumn;
+import javax.persistence.JoinTable;
 import javax.persistence.ManyToMany;
 
 import org.hibernate.search.annotations.Analyze;
 import org.hibernate.search.annotations.DocumentId;
+import org.hibernate.search.annotations.Facet;
 import org.hibernate.search.annotations.Field;
 import org.hibernate.search.annotations.Indexed;
 import org.hibernate.search.annotations.IndexedEmbedded;
@@ -32,9 +35,14 @@ public class Book {
 	private String isbn;
 
 	@Field(analyze = Analyze.NO, store = Store.YES)
+	@Facet
 	private String publisher;
 
+	// the default column names of the unidirectional mapping, also used by the isbndb import
 	@ManyToMany(cascade = CascadeType.ALL, fetch = FetchType.EAGER)
+	@JoinTable(name = "Book_Author",
+			joinColumns = @JoinColumn(name = "Book_id"),
+			inverseJoinColumns = @JoinColumn(name = "authors_id"))
 	@IndexedEmbedded
 	private Set<Author> authors = new HashSet<Author>();
 
@@ -0,0 +1,110 @@
+package org.hibernate.search.test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.lucene.facet.FacetResult;
+import org.apache.lucene.facet.sortedset.DefaultSortedSetDocValuesReaderState;
+import org.apache.lucene.facet.sortedset.SortedSetDocValuesReaderState;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.MatchAllDocsQuery;
+import org.apache.lucene.search.SearcherManager;
+import org.apache.lucene.store.Directory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import org.hibernate.search.FullTextSession;
+import org.hibernate.search.Search;
+import org.hibernate.search.query.facet.Facet;
+
+/**
+ * Throughput variants of the faceting benchmarks, meant to be run with multiple threads ({@code -t}) sharing the
+ * session factory respectively the searcher. The native Lucene side acquires and releases its searcher from a
+ * {@code SearcherManager} for each request, as a search service would.
+ * <p>
+ * {@link #main(String[])} runs the benchmarks for 1 up to 2 x cores threads.
+ */
+@BenchmarkMode(Mode.Throughput)
+@Warmup(iterations = 1)
+@Measurement(iterations = 2)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Benchmark)
+public class ConcurrentFacetingPerformance extends AbstractFacetingBenchmark {
+	private Directory directory;
+	private SearcherManager searcherManager;
+
+	@Setup
+	public void setUp() throws Exception {
+		setUpIndexes();
+		directory = openNativeIndexDirectory();
+		searcherManager = new SearcherManager( directory, null );
+	}
+
+	@TearDown
+	public void tearDown() throws Exception {
+		searcherManager.close();
+		directory.close();
+	}
+
+	@Benchmark
+	public void hsearchFaceting() {
+		FullTextSession fullTextSession = Search.getFullTextSession( sessionFactory.openSession() );
+		try {
+			List<Facet> facets = hsearchFaceting( fullTextSession, new MatchAllDocsQuery() );
+			assertTopAuthor( facets );
+		}
+		finally {
+			fullTextSession.close();
+		}
+	}
+
+	@Benchmark
+	public void luceneFaceting() throws Exception {
+		IndexSearcher searcher = searcherManager.acquire();
+		try {
+			SortedSetDocValuesReaderState docValuesReaderState =
+					new DefaultSortedSetDocValuesReaderState( searcher.getIndexReader() );
+
+			FacetResult topFacetResult = luceneFaceting( searcher, docValuesReaderState, new MatchAllDocsQuery() );
+			assertTopAuthor( topFacetResult );
+		}
+		finally {
+			searcherManager.release( searcher );
+		}
+	}
+
+	/**
+	 * @return 1, 2, 4, ... threads up to twice the number of cores
+	 */
+	static List<Integer> getThreadCounts() {
+		int maxThreads = 2 * Runtime.getRuntime().availableProcessors();
+		List<Integer> threadCounts = new ArrayList<Integer>();
+		for ( int threads = 1; threads < maxThreads; threads *= 2 ) {
+			threadCounts.add( threads );
+		}
+		threadCounts.add( maxThreads );
+		return threadCounts;
+	}
+
+	public static void main(String[] args) throws Exception {
+		for ( int threads : getThreadCounts() ) {
+			Options opt = new OptionsBuilder()
+					.include( ".*" + ConcurrentFacetingPerformance.class.getSimpleName() + ".*" )
+					.threads( threads )
+					.build();
+			new Runner( opt ).run();
+		}
+	}
+}
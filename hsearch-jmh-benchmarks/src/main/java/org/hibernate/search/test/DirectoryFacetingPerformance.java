@@ -0,0 +1,239 @@
+package org.hibernate.search.test;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.lucene.facet.FacetResult;
+import org.apache.lucene.facet.sortedset.DefaultSortedSetDocValuesReaderState;
+import org.apache.lucene.facet.sortedset.SortedSetDocValuesReaderState;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.MatchAllDocsQuery;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.IOContext;
+import org.apache.lucene.store.MMapDirectory;
+import org.apache.lucene.store.NIOFSDirectory;
+import org.apache.lucene.store.RAMDirectory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import org.hibernate.CacheMode;
+import org.hibernate.SessionFactory;
+import org.hibernate.cfg.Configuration;
+import org.hibernate.search.FullTextSession;
+import org.hibernate.search.Search;
+import org.hibernate.search.query.facet.Facet;
+
+/**
+ * Runs the faceting requests against different directory implementations, {@code MMapDirectory},
+ * {@code NIOFSDirectory} and {@code RAMDirectory} for the native index and the {@code filesystem} (NIO or
+ * memory-mapped) and {@code ram} directory providers for Hibernate Search.
+ * <p>
+ * With {@code cache=cold} the directory and reader (respectively the session factory) are reopened before every
+ * request. The OS page cache is only dropped if a command for doing so is given via the {@code dropCachesCommand}
+ * system property, e.g.
+ * {@code -jvmArgsAppend "-DdropCachesCommand=sync; echo 3 > /proc/sys/vm/drop_caches"} (requires root).
+ * The in-memory variants are always warm, their index is copied respectively built only once.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@Warmup(iterations = 1)
+@Measurement(iterations = 2)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+public class DirectoryFacetingPerformance extends AbstractFacetingBenchmark {
+	private static final String DROP_CACHES_COMMAND_PROPERTY = "dropCachesCommand";
+
+	@Param({ "warm", "cold" })
+	public String cache;
+
+	@State(Scope.Benchmark)
+	public static class NativeIndex {
+		@Param({ "mmap", "niofs", "ram" })
+		public String nativeDirectory;
+
+		private DirectoryFacetingPerformance benchmark;
+		private Directory directory;
+		private DirectoryReader reader;
+		private IndexSearcher searcher;
+
+		@Setup
+		public void setUp(DirectoryFacetingPerformance benchmark) throws Exception {
+			this.benchmark = benchmark;
+			open();
+		}
+
+		@Setup(Level.Invocation)
+		public void reopen() throws Exception {
+			if ( !benchmark.isColdCache() ) {
+				return;
+			}
+			if ( "ram".equals( nativeDirectory ) ) {
+				reader.close();
+				reader = DirectoryReader.open( directory );
+				searcher = new IndexSearcher( reader );
+			}
+			else {
+				close();
+				dropOsCaches();
+				open();
+			}
+		}
+
+		@TearDown
+		public void close() throws IOException {
+			reader.close();
+			directory.close();
+		}
+
+		private void open() throws IOException {
+			if ( "mmap".equals( nativeDirectory ) ) {
+				directory = new MMapDirectory( benchmark.getNativeIndexDir() );
+			}
+			else if ( "niofs".equals( nativeDirectory ) ) {
+				directory = new NIOFSDirectory( benchmark.getNativeIndexDir() );
+			}
+			else if ( "ram".equals( nativeDirectory ) ) {
+				Directory fsDirectory = benchmark.openNativeIndexDirectory();
+				try {
+					directory = new RAMDirectory( fsDirectory, IOContext.READONCE );
+				}
+				finally {
+					fsDirectory.close();
+				}
+			}
+			else {
+				throw new IllegalArgumentException( "Unknown directory: " + nativeDirectory );
+			}
+			reader = DirectoryReader.open( directory );
+			searcher = new IndexSearcher( reader );
+		}
+	}
+
+	@State(Scope.Benchmark)
+	public static class HSearchIndex {
+		/**
+		 * {@code filesystem-nio} and {@code filesystem-mmap} use the {@code filesystem} directory provider with the
+		 * corresponding {@code filesystem_access_type}, {@code ram} re-indexes all books into a {@code ram}
+		 * directory provider.
+		 */
+		@Param({ "filesystem-nio", "filesystem-mmap", "ram" })
+		public String hsearchDirectory;
+
+		private DirectoryFacetingPerformance benchmark;
+		private SessionFactory sessionFactory;
+
+		@Setup
+		public void setUp(DirectoryFacetingPerformance benchmark) throws Exception {
+			this.benchmark = benchmark;
+			open();
+			if ( "ram".equals( hsearchDirectory ) ) {
+				FullTextSession fullTextSession = Search.getFullTextSession( sessionFactory.openSession() );
+				try {
+					fullTextSession.createIndexer( Book.class )
+							.cacheMode( CacheMode.IGNORE )
+							.optimizeOnFinish( false )
+							.startAndWait();
+				}
+				finally {
+					fullTextSession.close();
+				}
+			}
+		}
+
+		@Setup(Level.Invocation)
+		public void reopen() throws Exception {
+			if ( benchmark.isColdCache() && !"ram".equals( hsearchDirectory ) ) {
+				close();
+				dropOsCaches();
+				open();
+			}
+		}
+
+		@TearDown
+		public void close() {
+			sessionFactory.close();
+		}
+
+		private void open() {
+			Configuration cfg = benchmark.buildConfiguration();
+			if ( "filesystem-nio".equals( hsearchDirectory ) ) {
+				cfg.setProperty( "hibernate.search.default.filesystem_access_type", "nio" );
+			}
+			else if ( "filesystem-mmap".equals( hsearchDirectory ) ) {
+				cfg.setProperty( "hibernate.search.default.filesystem_access_type", "mmap" );
+			}
+			else if ( "ram".equals( hsearchDirectory ) ) {
+				cfg.setProperty( "hibernate.search.default.directory_provider", "ram" );
+			}
+			else {
+				throw new IllegalArgumentException( "Unknown directory provider: " + hsearchDirectory );
+			}
+			sessionFactory = cfg.buildSessionFactory();
+		}
+	}
+
+	@Setup
+	public void setUp() throws Exception {
+		setUpIndexes();
+	}
+
+	@Benchmark
+	public void hsearchFaceting(HSearchIndex index) {
+		FullTextSession fullTextSession = Search.getFullTextSession( index.sessionFactory.openSession() );
+		try {
+			List<Facet> facets = hsearchFaceting( fullTextSession, new MatchAllDocsQuery() );
+			assertTopAuthor( facets );
+		}
+		finally {
+			fullTextSession.close();
+		}
+	}
+
+	@Benchmark
+	public void luceneFaceting(NativeIndex index) throws Exception {
+		SortedSetDocValuesReaderState docValuesReaderState = new DefaultSortedSetDocValuesReaderState( index.reader );
+
+		FacetResult topFacetResult = luceneFaceting( index.searcher, docValuesReaderState, new MatchAllDocsQuery() );
+		assertTopAuthor( topFacetResult );
+	}
+
+	private boolean isColdCache() {
+		return "cold".equals( cache );
+	}
+
+	/**
+	 * Runs the command given via the {@code dropCachesCommand} system property, if any.
+	 */
+	private static void dropOsCaches() throws Exception {
+		String command = System.getProperty( DROP_CACHES_COMMAND_PROPERTY );
+		if ( command == null || command.isEmpty() ) {
+			return;
+		}
+		Process process = new ProcessBuilder( "sh", "-c", command ).inheritIO().start();
+		if ( process.waitFor() != 0 ) {
+			throw new IllegalStateException( "Unable to drop the OS caches, '" + command + "' failed" );
+		}
+	}
+
+	// for testing in the IDE
+	public static void main(String[] args) throws Exception {
+		Options opt = new OptionsBuilder()
+				.include( ".*" + DirectoryFacetingPerformance.class.getSimpleName() + ".*" )
+				.build();
+		new Runner( opt ).run();
+	}
+}
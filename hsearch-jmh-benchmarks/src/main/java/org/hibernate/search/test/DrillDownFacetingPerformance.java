@@ -0,0 +1,211 @@
+package org.hibernate.search.test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.lucene.facet.DrillDownQuery;
+import org.apache.lucene.facet.DrillSideways;
+import org.apache.lucene.facet.FacetResult;
+import org.apache.lucene.facet.FacetsCollector;
+import org.apache.lucene.facet.FacetsConfig;
+import org.apache.lucene.facet.sortedset.DefaultSortedSetDocValuesReaderState;
+import org.apache.lucene.facet.sortedset.SortedSetDocValuesFacetCounts;
+import org.apache.lucene.facet.sortedset.SortedSetDocValuesReaderState;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.search.BooleanClause;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.MatchAllDocsQuery;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.store.Directory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import org.hibernate.search.FullTextQuery;
+import org.hibernate.search.FullTextSession;
+import org.hibernate.search.Search;
+import org.hibernate.search.query.dsl.QueryBuilder;
+import org.hibernate.search.query.engine.spi.FacetManager;
+import org.hibernate.search.query.facet.Facet;
+import org.hibernate.search.query.facet.FacetCombine;
+import org.hibernate.search.query.facet.FacetSortOrder;
+import org.hibernate.search.query.facet.FacetingRequest;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+/**
+ * Drills down into the books of the {@code selectedAuthors} top authors (OR-ed, as for a multi-select in the UI)
+ * and re-facets on publisher and authors.
+ * <p>
+ * Hibernate Search selects the author facets via {@code FacetManager.getFacetGroup(...).selectFacets(...)}, the
+ * native side uses a {@code DrillDownQuery} respectively {@code DrillSideways}, which in addition counts the
+ * authors as if none were selected. The publisher counts of all variants are verified against a drill-down done
+ * during setup. The reader state of the native index is created once, see {@code FacetStateCachingPerformance}
+ * for its cost.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@Warmup(iterations = 1)
+@Measurement(iterations = 2)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+public class DrillDownFacetingPerformance extends AbstractFacetingBenchmark {
+	private static final String PUBLISHER_FACET = "publisherFacet";
+	private static final String PUBLISHER_FIELD = "publisher";
+
+	@Param({ "1", "3", "10" })
+	public int selectedAuthors;
+
+	private Directory directory;
+	private DirectoryReader reader;
+	private IndexSearcher searcher;
+	private SortedSetDocValuesReaderState docValuesReaderState;
+	private FacetsConfig facetsConfig;
+
+	private Facet[] selectedAuthorFacets;
+	private List<String> selectedAuthorNames;
+	private String expectedTopPublisher;
+	private int expectedTopPublisherCount;
+
+	@Setup
+	public void setUp() throws Exception {
+		if ( selectedAuthors > MAX_FACET_COUNT ) {
+			throw new IllegalArgumentException( "At most " + MAX_FACET_COUNT + " authors can be selected" );
+		}
+		setUpIndexes();
+		directory = openNativeIndexDirectory();
+		reader = DirectoryReader.open( directory );
+		searcher = new IndexSearcher( reader );
+		docValuesReaderState = new DefaultSortedSetDocValuesReaderState( reader );
+		facetsConfig = NativeLuceneIndexer.createFacetsConfig();
+
+		// the authors to select, the same names are used for both engines
+		FullTextSession fullTextSession = Search.getFullTextSession( sessionFactory.openSession() );
+		try {
+			List<Facet> authorFacets = hsearchFaceting( fullTextSession, new MatchAllDocsQuery() );
+			selectedAuthorFacets = authorFacets.subList( 0, selectedAuthors ).toArray( new Facet[selectedAuthors] );
+		}
+		finally {
+			fullTextSession.close();
+		}
+		selectedAuthorNames = new ArrayList<String>( selectedAuthors );
+		for ( Facet facet : selectedAuthorFacets ) {
+			selectedAuthorNames.add( facet.getValue() );
+		}
+
+		FacetResult publisherResult = drillDown().getTopChildren( MAX_FACET_COUNT, PUBLISHER_FIELD );
+		expectedTopPublisher = publisherResult.labelValues[0].label;
+		expectedTopPublisherCount = publisherResult.labelValues[0].value.intValue();
+	}
+
+	@TearDown
+	public void tearDown() throws IOException {
+		reader.close();
+		directory.close();
+	}
+
+	@Benchmark
+	public void hsearchDrillDown() {
+		FullTextSession fullTextSession = Search.getFullTextSession( sessionFactory.openSession() );
+		try {
+			FullTextQuery fullTextQuery = fullTextSession.createFullTextQuery( new MatchAllDocsQuery(), Book.class );
+			FacetManager facetManager = fullTextQuery.getFacetManager()
+					.enableFaceting( createAuthorFacetingRequest( fullTextSession ) )
+					.enableFaceting( createPublisherFacetingRequest( fullTextSession ) );
+			facetManager.getFacetGroup( AUTHOR_NAME_FACET ).selectFacets( FacetCombine.OR, selectedAuthorFacets );
+
+			List<Facet> publisherFacets = facetManager.getFacets( PUBLISHER_FACET );
+			List<Facet> authorFacets = facetManager.getFacets( AUTHOR_NAME_FACET );
+			assertEquals( "Wrong facet value count", expectedTopPublisherCount, publisherFacets.get( 0 ).getCount() );
+			assertFalse( "No author facets", authorFacets.isEmpty() );
+		}
+		finally {
+			fullTextSession.close();
+		}
+	}
+
+	@Benchmark
+	public void luceneDrillDown() throws Exception {
+		SortedSetDocValuesFacetCounts facets = drillDown();
+
+		assertTopPublisher( facets.getTopChildren( MAX_FACET_COUNT, PUBLISHER_FIELD ) );
+		FacetResult authorResult = facets.getTopChildren( MAX_FACET_COUNT, AUTHOR_NAME_FIELD );
+		assertFalse( "No author facets", authorResult.labelValues.length == 0 );
+	}
+
+	@Benchmark
+	public void luceneDrillSideways() throws Exception {
+		DrillSideways drillSideways = new DrillSideways( searcher, facetsConfig, docValuesReaderState );
+		DrillSideways.DrillSidewaysResult result = drillSideways.search( createDrillDownQuery(), MAX_FACET_COUNT );
+
+		assertTopPublisher( result.facets.getTopChildren( MAX_FACET_COUNT, PUBLISHER_FIELD ) );
+		// the sideways counts of the authors ignore the author selection
+		assertTopAuthor( result.facets.getTopChildren( MAX_FACET_COUNT, AUTHOR_NAME_FIELD ) );
+	}
+
+	private FacetingRequest createPublisherFacetingRequest(FullTextSession fullTextSession) {
+		QueryBuilder builder = fullTextSession.getSearchFactory().buildQueryBuilder().forEntity( Book.class ).get();
+		return builder.facet()
+				.name( PUBLISHER_FACET )
+				.onField( PUBLISHER_FIELD )
+				.discrete()
+				.orderedBy( FacetSortOrder.COUNT_DESC )
+				.includeZeroCounts( false )
+				.maxFacetCount( MAX_FACET_COUNT )
+				.createFacetingRequest();
+	}
+
+	/**
+	 * Restricts the results to the books of any of the selected authors.
+	 */
+	private DrillDownQuery createDrillDownQuery() {
+		String indexFieldName = facetsConfig.getDimConfig( AUTHOR_NAME_FIELD ).indexFieldName;
+		BooleanQuery anySelectedAuthor = new BooleanQuery();
+		for ( String authorName : selectedAuthorNames ) {
+			anySelectedAuthor.add(
+					new TermQuery( DrillDownQuery.term( indexFieldName, AUTHOR_NAME_FIELD, authorName ) ),
+					BooleanClause.Occur.SHOULD
+			);
+		}
+		DrillDownQuery drillDownQuery = new DrillDownQuery( facetsConfig, new MatchAllDocsQuery() );
+		drillDownQuery.add( AUTHOR_NAME_FIELD, anySelectedAuthor );
+		return drillDownQuery;
+	}
+
+	private SortedSetDocValuesFacetCounts drillDown() throws IOException {
+		FacetsCollector facetsCollector = new FacetsCollector();
+		searcher.search( createDrillDownQuery(), facetsCollector );
+		return new SortedSetDocValuesFacetCounts( docValuesReaderState, facetsCollector );
+	}
+
+	private void assertTopPublisher(FacetResult publisherResult) {
+		assertEquals( "Wrong facet ", expectedTopPublisher, publisherResult.labelValues[0].label );
+		assertEquals(
+				"Wrong facet value count",
+				expectedTopPublisherCount,
+				publisherResult.labelValues[0].value.intValue()
+		);
+	}
+
+	// for testing in the IDE
+	public static void main(String[] args) throws Exception {
+		Options opt = new OptionsBuilder()
+				.include( ".*" + DrillDownFacetingPerformance.class.getSimpleName() + ".*" )
+				.build();
+		new Runner( opt ).run();
+	}
+}
@@ -0,0 +1,145 @@
+package org.hibernate.search.test;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.lucene.facet.sortedset.DefaultSortedSetDocValuesReaderState;
+import org.apache.lucene.facet.sortedset.SortedSetDocValuesReaderState;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.MatchAllDocsQuery;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.store.Directory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.search.FullTextSession;
+import org.hibernate.search.Search;
+
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Measures the heap retained by the faceting data structures of either engine, as the difference of the used heap
+ * after full garbage collections before and after the faceting warm-up. Each invocation starts from a cold engine:
+ * {@code luceneFootprint} opens a new reader, {@code hsearchFootprint} a new session factory on the existing index.
+ * With {@code -prof metrics} the retained bytes and the bytes per unique author name of each structure are reported,
+ * the score is the time of the cold start.
+ * <p>
+ * Vary {@code authorsToBooksRatio} to compare the footprints at different numbers of unique facet values. The numbers
+ * are only meaningful with a single benchmark thread. Building a session factory leaves a few hundred KB of varying
+ * garbage behind, so the Hibernate Search session factory line only becomes significant for large data sets.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+public class FacetMemoryFootprintPerformance extends AbstractFacetingBenchmark {
+	private Directory directory;
+	private long uniqueAuthors;
+
+	@Setup
+	public void setUp() throws Exception {
+		setUpIndexes();
+		directory = openNativeIndexDirectory();
+		DirectoryReader reader = DirectoryReader.open( directory );
+		try {
+			SortedSetDocValuesReaderState.OrdRange ordRange = new DefaultSortedSetDocValuesReaderState( reader )
+					.getOrdRange( AUTHOR_NAME_FIELD );
+			uniqueAuthors = ordRange.end - ordRange.start + 1;
+		}
+		finally {
+			reader.close();
+		}
+		assertTrue( "No unique author names", uniqueAuthors > 0 );
+		MetricsProfiler.gauge( "uniqueValues", uniqueAuthors, "values" );
+	}
+
+	@TearDown
+	public void tearDown() throws IOException {
+		directory.close();
+	}
+
+	@Benchmark
+	public void luceneFootprint() throws Exception {
+		long usedHeap = usedHeapAfterGc();
+		DirectoryReader reader = DirectoryReader.open( directory );
+		try {
+			IndexSearcher searcher = new IndexSearcher( reader );
+			// a query not touching the facet field, so that only the structures of the reader itself are loaded
+			searcher.search( new TermQuery( new Term( "title", "java" ) ), 1 );
+			long readerHeap = usedHeapAfterGc();
+
+			SortedSetDocValuesReaderState docValuesReaderState = new DefaultSortedSetDocValuesReaderState( reader );
+			long stateHeap = usedHeapAfterGc();
+
+			assertTopAuthor( luceneFaceting( searcher, docValuesReaderState, new MatchAllDocsQuery() ) );
+			long facetingHeap = usedHeapAfterGc();
+
+			recordFootprint( "reader", readerHeap - usedHeap );
+			recordFootprint( "readerState", stateHeap - readerHeap );
+			recordFootprint( "faceting", facetingHeap - stateHeap );
+			recordFootprint( "total", facetingHeap - usedHeap );
+		}
+		finally {
+			reader.close();
+		}
+	}
+
+	@Benchmark
+	public void hsearchFootprint() throws Exception {
+		long usedHeap = usedHeapAfterGc();
+		SessionFactory hsearchSessionFactory = buildConfiguration().buildSessionFactory();
+		try {
+			FullTextSession fullTextSession = Search.getFullTextSession( hsearchSessionFactory.openSession() );
+			try {
+				// opens the index readers without faceting
+				fullTextSession.createFullTextQuery( new TermQuery( new Term( "title", "java" ) ), Book.class )
+						.setMaxResults( 1 )
+						.getResultSize();
+				long readerHeap = usedHeapAfterGc();
+
+				assertTopAuthor( hsearchFaceting( fullTextSession, new MatchAllDocsQuery() ) );
+				long facetingHeap = usedHeapAfterGc();
+
+				recordFootprint( "sessionFactoryAndReaders", readerHeap - usedHeap );
+				recordFootprint( "faceting", facetingHeap - readerHeap );
+				recordFootprint( "total", facetingHeap - usedHeap );
+			}
+			finally {
+				fullTextSession.close();
+			}
+		}
+		finally {
+			hsearchSessionFactory.close();
+		}
+	}
+
+	private void recordFootprint(String structure, long bytes) {
+		MetricsProfiler.gauge( "heap." + structure, bytes, "bytes" );
+		MetricsProfiler.gauge( "heap." + structure + ".perValue", (double) bytes / uniqueAuthors, "bytes/value" );
+	}
+
+	// for testing in the IDE
+	public static void main(String[] args) throws Exception {
+		Options opt = new OptionsBuilder()
+				.include( ".*" + FacetMemoryFootprintPerformance.class.getSimpleName() + ".*" )
+				.addProfiler( MetricsProfiler.class )
+				.forks( 1 )
+				.build();
+		new Runner( opt ).run();
+	}
+}
@@ -0,0 +1,141 @@
+package org.hibernate.search.test;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.IndexReaderContext;
+import org.apache.lucene.search.Query;
+
+/**
+ * A bounded LRU cache of facet results, keyed by the query, a description of the faceting request and the version of
+ * the index reader. Queries are matched via {@code Query.equals()}. All entries are dropped as soon as a result
+ * for another reader version is requested or added, so results of a previous reader never survive a reopen. Threads
+ * still using the previous reader after a reopen thus cause further invalidations until they switch.
+ * <p>
+ * The results are computed outside the lock, concurrent misses of the same key compute the result several times.
+ *
+ * @param <V> the type of the cached facet results
+ */
+public class FacetResultCache<V> {
+	private final Map<Key, V> entries;
+	private long readerVersion = -1;
+	private long hits;
+	private long misses;
+
+	/**
+	 * @param maxEntries the maximum number of cached results
+	 */
+	public FacetResultCache(final int maxEntries) {
+		this.entries = new LinkedHashMap<Key, V>( 16, 0.75f, true ) {
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Key, V> eldest) {
+				return size() > maxEntries;
+			}
+		};
+	}
+
+	/**
+	 * @return the cached result, {@code null} if there is none
+	 */
+	public synchronized V get(Query query, String request, long readerVersion) {
+		invalidateOnReopen( readerVersion );
+		V result = entries.get( new Key( query, request, readerVersion ) );
+		if ( result == null ) {
+			misses++;
+		}
+		else {
+			hits++;
+		}
+		return result;
+	}
+
+	public synchronized void put(Query query, String request, long readerVersion, V result) {
+		invalidateOnReopen( readerVersion );
+		entries.put( new Key( query, request, readerVersion ), result );
+	}
+
+	/**
+	 * @return the number of lookups since the last reset of the statistics
+	 */
+	public synchronized long getLookups() {
+		return hits + misses;
+	}
+
+	/**
+	 * @return the ratio of the hits to all lookups since the last reset of the statistics
+	 */
+	public synchronized double getHitRatio() {
+		long lookups = hits + misses;
+		return lookups == 0 ? 0 : (double) hits / lookups;
+	}
+
+	public synchronized void resetStatistics() {
+		hits = 0;
+		misses = 0;
+	}
+
+	/**
+	 * @return the version of the given reader, combining the versions of its directory readers if it is composed
+	 * of several, e.g. for multiple shards
+	 */
+	public static long versionOf(IndexReader reader) {
+		if ( reader instanceof DirectoryReader ) {
+			return ( (DirectoryReader) reader ).getVersion();
+		}
+		IndexReaderContext context = reader.getContext();
+		if ( context.children() != null ) {
+			long version = 17;
+			for ( IndexReaderContext child : context.children() ) {
+				version = 31 * version + versionOf( child.reader() );
+			}
+			return version;
+		}
+		throw new IllegalArgumentException( "Unable to determine the version of " + reader );
+	}
+
+	/**
+	 * The combined versions are not ordered, so any other version is taken as a reopen.
+	 */
+	private void invalidateOnReopen(long readerVersion) {
+		if ( readerVersion != this.readerVersion ) {
+			entries.clear();
+			this.readerVersion = readerVersion;
+		}
+	}
+
+	private static final class Key {
+		private final Query query;
+		private final String request;
+		private final long readerVersion;
+
+		private Key(Query query, String request, long readerVersion) {
+			this.query = query;
+			this.request = request;
+			this.readerVersion = readerVersion;
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if ( this == o ) {
+				return true;
+			}
+			if ( o == null || getClass() != o.getClass() ) {
+				return false;
+			}
+
+			Key key = (Key) o;
+
+			return readerVersion == key.readerVersion && query.equals( key.query ) && request.equals( key.request );
+		}
+
+		@Override
+		public int hashCode() {
+			int result = query.hashCode();
+			result = 31 * result + request.hashCode();
+			result = 31 * result + (int) ( readerVersion ^ ( readerVersion >>> 32 ) );
+			return result;
+		}
+	}
+}
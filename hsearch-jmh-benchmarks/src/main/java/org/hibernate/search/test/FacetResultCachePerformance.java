@@ -0,0 +1,310 @@
+package org.hibernate.search.test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.lucene.facet.FacetResult;
+import org.apache.lucene.facet.LabelAndValue;
+import org.apache.lucene.facet.sortedset.DefaultSortedSetDocValuesReaderState;
+import org.apache.lucene.facet.sortedset.SortedSetDocValuesReaderState;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.store.Directory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import org.hibernate.search.FullTextSession;
+import org.hibernate.search.Search;
+import org.hibernate.search.indexes.IndexReaderAccessor;
+import org.hibernate.search.query.facet.Facet;
+import org.hibernate.search.query.facet.FacetingRequest;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+
+/**
+ * Facets on the books matching a title term, with and without a {@link FacetResultCache} in front of either engine.
+ * With probability {@code hitRatio} one of {@value #HOT_QUERIES} frequent queries is run, otherwise the next of
+ * the remaining title terms, which have all been evicted from the cache by the time they come up again. The hot
+ * queries are the title terms matching the most books, so a hit saves a costly faceting. With {@code -prof metrics}
+ * the actual hit ratio of the cache is reported after each iteration. The {@code Concurrent} variants share the cache between
+ * {@value #CONCURRENT_THREADS} threads, to show the contention on its lock.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@Warmup(iterations = 1)
+@Measurement(iterations = 2)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+public class FacetResultCachePerformance extends AbstractFacetingBenchmark {
+	private static final int CACHE_SIZE = 100;
+	private static final int HOT_QUERIES = 10;
+	private static final int CONCURRENT_THREADS = 4;
+	private static final String LUCENE_REQUEST = AUTHOR_NAME_FIELD + "|" + MAX_FACET_COUNT;
+
+	@Param({ "0", "0.5", "0.95" })
+	public double hitRatio;
+
+	private Directory directory;
+	private DirectoryReader reader;
+	private IndexSearcher searcher;
+	private SortedSetDocValuesReaderState docValuesReaderState;
+	private List<Query> hotQueries;
+	private List<Query> coldQueries;
+	private String hsearchRequest;
+
+	private FacetResultCache<FacetResult> luceneCache;
+	private FacetResultCache<List<Facet>> hsearchCache;
+
+	@State(Scope.Thread)
+	public static class QueryMix {
+		private final Random random = new Random();
+		private int nextColdQuery = -1;
+
+		private Query next(FacetResultCachePerformance benchmark) {
+			if ( random.nextDouble() < benchmark.hitRatio ) {
+				return benchmark.hotQueries.get( random.nextInt( HOT_QUERIES ) );
+			}
+			List<Query> coldQueries = benchmark.coldQueries;
+			// a different start for each thread, so that the threads don't hit the entries of each other
+			nextColdQuery = nextColdQuery < 0 ? random.nextInt( coldQueries.size() ) : nextColdQuery;
+			nextColdQuery = ( nextColdQuery + 1 ) % coldQueries.size();
+			return coldQueries.get( nextColdQuery );
+		}
+	}
+
+	@Setup
+	public void setUp() throws Exception {
+		setUpIndexes();
+		directory = openNativeIndexDirectory();
+		reader = DirectoryReader.open( directory );
+		searcher = new IndexSearcher( reader );
+		docValuesReaderState = new DefaultSortedSetDocValuesReaderState( reader );
+		selectQueries();
+
+		FullTextSession fullTextSession = Search.getFullTextSession( sessionFactory.openSession() );
+		try {
+			hsearchRequest = describe( createAuthorFacetingRequest( fullTextSession ) );
+		}
+		finally {
+			fullTextSession.close();
+		}
+		luceneCache = new FacetResultCache<FacetResult>( CACHE_SIZE );
+		hsearchCache = new FacetResultCache<List<Facet>>( CACHE_SIZE );
+
+		assertCachedResults();
+	}
+
+	@TearDown
+	public void tearDown() throws IOException {
+		reader.close();
+		directory.close();
+	}
+
+	@TearDown(Level.Iteration)
+	public void recordHitRatio() {
+		// only the cache of the engine under test has been used
+		recordHitRatio( luceneCache );
+		recordHitRatio( hsearchCache );
+	}
+
+	@Benchmark
+	public void luceneFaceting(QueryMix queryMix) throws Exception {
+		assertNotNull( luceneFaceting( searcher, docValuesReaderState, queryMix.next( this ) ) );
+	}
+
+	@Benchmark
+	public void luceneCachedFaceting(QueryMix queryMix) throws Exception {
+		assertNotNull( luceneCachedFaceting( queryMix.next( this ) ) );
+	}
+
+	@Benchmark
+	@Threads(CONCURRENT_THREADS)
+	public void luceneCachedFacetingConcurrent(QueryMix queryMix) throws Exception {
+		assertNotNull( luceneCachedFaceting( queryMix.next( this ) ) );
+	}
+
+	@Benchmark
+	public void hsearchFaceting(QueryMix queryMix) {
+		FullTextSession fullTextSession = Search.getFullTextSession( sessionFactory.openSession() );
+		try {
+			assertFalse( hsearchFaceting( fullTextSession, queryMix.next( this ) ).isEmpty() );
+		}
+		finally {
+			fullTextSession.close();
+		}
+	}
+
+	@Benchmark
+	public void hsearchCachedFaceting(QueryMix queryMix) {
+		assertFalse( hsearchCachedFaceting( queryMix.next( this ) ).isEmpty() );
+	}
+
+	@Benchmark
+	@Threads(CONCURRENT_THREADS)
+	public void hsearchCachedFacetingConcurrent(QueryMix queryMix) {
+		assertFalse( hsearchCachedFaceting( queryMix.next( this ) ).isEmpty() );
+	}
+
+	private FacetResult luceneCachedFaceting(Query query) throws IOException {
+		long readerVersion = FacetResultCache.versionOf( searcher.getIndexReader() );
+		FacetResult result = luceneCache.get( query, LUCENE_REQUEST, readerVersion );
+		if ( result == null ) {
+			result = luceneFaceting( searcher, docValuesReaderState, query );
+			luceneCache.put( query, LUCENE_REQUEST, readerVersion, result );
+		}
+		return result;
+	}
+
+	private List<Facet> hsearchCachedFaceting(Query query) {
+		FullTextSession fullTextSession = Search.getFullTextSession( sessionFactory.openSession() );
+		try {
+			long readerVersion = hsearchReaderVersion( fullTextSession );
+			List<Facet> facets = hsearchCache.get( query, hsearchRequest, readerVersion );
+			if ( facets == null ) {
+				facets = hsearchFaceting( fullTextSession, query );
+				hsearchCache.put( query, hsearchRequest, readerVersion, facets );
+			}
+			return facets;
+		}
+		finally {
+			fullTextSession.close();
+		}
+	}
+
+	private static long hsearchReaderVersion(FullTextSession fullTextSession) {
+		IndexReaderAccessor readerAccessor = fullTextSession.getSearchFactory().getIndexReaderAccessor();
+		IndexReader reader = readerAccessor.open( Book.class );
+		try {
+			return FacetResultCache.versionOf( reader );
+		}
+		finally {
+			readerAccessor.close( reader );
+		}
+	}
+
+	/**
+	 * Uses the title terms indexed alike by both engines by descending document frequency, the first ones as the hot
+	 * queries, so that both engines run the same queries with the same number of hits.
+	 */
+	private void selectQueries() throws IOException {
+		List<Map.Entry<Term, Integer>> terms = new ArrayList<Map.Entry<Term, Integer>>(
+				getCommonTitleTerms( reader ).entrySet()
+		);
+		Collections.sort(
+				terms, new Comparator<Map.Entry<Term, Integer>>() {
+					@Override
+					public int compare(Map.Entry<Term, Integer> term1, Map.Entry<Term, Integer> term2) {
+						return term2.getValue().compareTo( term1.getValue() );
+					}
+				}
+		);
+
+		hotQueries = new ArrayList<Query>();
+		coldQueries = new ArrayList<Query>();
+		for ( Map.Entry<Term, Integer> term : terms ) {
+			Query query = new TermQuery( term.getKey() );
+			if ( hotQueries.size() < HOT_QUERIES ) {
+				hotQueries.add( query );
+			}
+			else {
+				coldQueries.add( query );
+			}
+		}
+		assertFalse( "Not enough title terms", coldQueries.size() <= CACHE_SIZE );
+		MetricsProfiler.gauge( "hotQueries.minHits", terms.get( HOT_QUERIES - 1 ).getValue(), "books" );
+		MetricsProfiler.gauge( "hotQueries.maxHits", terms.get( 0 ).getValue(), "books" );
+	}
+
+	/**
+	 * Checks that each engine returns the result of its uncached request for a cached hot query. Between the engines
+	 * only the counts are compared, as they break ties between authors differently.
+	 */
+	private void assertCachedResults() throws IOException {
+		Query query = hotQueries.get( 0 );
+		FacetResult expected = luceneFaceting( searcher, docValuesReaderState, query );
+		luceneCachedFaceting( query );
+		FacetResult cached = luceneCachedFaceting( query );
+		assertArrayEquals( "Wrong cached facets", expected.labelValues, cached.labelValues );
+
+		FullTextSession fullTextSession = Search.getFullTextSession( sessionFactory.openSession() );
+		List<Facet> expectedFacets;
+		try {
+			expectedFacets = hsearchFaceting( fullTextSession, query );
+		}
+		finally {
+			fullTextSession.close();
+		}
+		hsearchCachedFaceting( query );
+		List<Facet> cachedFacets = hsearchCachedFaceting( query );
+		assertEquals( "Wrong cached facets", facetValueCounts( expectedFacets ), facetValueCounts( cachedFacets ) );
+
+		assertEquals( "Wrong facet count", expected.labelValues.length, cachedFacets.size() );
+		for ( int i = 0; i < cachedFacets.size(); i++ ) {
+			LabelAndValue labelAndValue = expected.labelValues[i];
+			assertEquals( "Wrong facet value count", labelAndValue.value.intValue(), cachedFacets.get( i ).getCount() );
+		}
+
+		luceneCache.resetStatistics();
+		hsearchCache.resetStatistics();
+	}
+
+	/**
+	 * @return the values and counts of the given facets, independent of the order of ties
+	 */
+	private static Set<String> facetValueCounts(List<Facet> facets) {
+		Set<String> description = new HashSet<String>();
+		for ( Facet facet : facets ) {
+			description.add( facet.getValue() + "=" + facet.getCount() );
+		}
+		return description;
+	}
+
+	private static String describe(FacetingRequest request) {
+		return request.getFieldName() + "|" + request.getSort() + "|" + request.getMaxNumberOfFacets() + "|"
+				+ request.hasZeroCountsIncluded();
+	}
+
+	private static void recordHitRatio(FacetResultCache<?> cache) {
+		if ( cache.getLookups() > 0 ) {
+			MetricsProfiler.gauge( "cache.hitRatio", cache.getHitRatio(), "hits/lookup" );
+		}
+		cache.resetStatistics();
+	}
+
+	// for testing in the IDE
+	public static void main(String[] args) throws Exception {
+		Options opt = new OptionsBuilder()
+				.include( ".*" + FacetResultCachePerformance.class.getSimpleName() + ".*" )
+				.addProfiler( MetricsProfiler.class )
+				.build();
+		new Runner( opt ).run();
+	}
+}
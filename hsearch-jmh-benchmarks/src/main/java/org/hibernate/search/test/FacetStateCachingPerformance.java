@@ -0,0 +1,176 @@
+package org.hibernate.search.test;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.facet.FacetResult;
+import org.apache.lucene.facet.sortedset.DefaultSortedSetDocValuesReaderState;
+import org.apache.lucene.facet.sortedset.SortedSetDocValuesReaderState;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.MatchAllDocsQuery;
+import org.apache.lucene.search.SearcherManager;
+import org.apache.lucene.store.Directory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Compares building the {@code SortedSetDocValuesReaderState} for every faceting request with caching it per reader
+ * via {@link SortedSetDocValuesReaderStateCache}. {@code cachedStateWithReopen} reopens the searcher at a fixed
+ * rate, invalidating the cached state each time.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@Warmup(iterations = 1)
+@Measurement(iterations = 2)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+public class FacetStateCachingPerformance extends AbstractFacetingBenchmark {
+	private Directory directory;
+	private SearcherManager searcherManager;
+	private SortedSetDocValuesReaderStateCache stateCache;
+
+	/**
+	 * An NRT searcher which is reopened every {@code reopenIntervalMillis}. Before each reopen a marker document
+	 * without authors is updated, so that there actually is a new reader. The changes are rolled back at the end.
+	 * A failed reopen cancels the later ones, it fails the iteration instead of faceting on a stale reader.
+	 */
+	@State(Scope.Benchmark)
+	public static class ReopeningSearcher {
+		private static final Term MARKER_TERM = new Term( "isbn", "reopen-marker" );
+
+		@Param({ "10", "100", "1000" })
+		public long reopenIntervalMillis;
+
+		private Directory directory;
+		private IndexWriter writer;
+		private SearcherManager searcherManager;
+		private SortedSetDocValuesReaderStateCache stateCache;
+		private ScheduledExecutorService reopener;
+		private final AtomicReference<Exception> reopenFailure = new AtomicReference<Exception>();
+
+		@Setup
+		public void setUp(FacetStateCachingPerformance benchmark) throws Exception {
+			directory = benchmark.openNativeIndexDirectory();
+			IndexWriterConfig iwc = NativeLuceneIndexer.createIndexWriterConfig();
+			iwc.setOpenMode( IndexWriterConfig.OpenMode.APPEND );
+			writer = new IndexWriter( directory, iwc );
+			searcherManager = new SearcherManager( writer, true, null );
+			stateCache = new SortedSetDocValuesReaderStateCache();
+
+			final Document marker = new Document();
+			marker.add( new StringField( MARKER_TERM.field(), MARKER_TERM.text(), Field.Store.NO ) );
+			reopener = Executors.newSingleThreadScheduledExecutor();
+			reopener.scheduleAtFixedRate(
+					new Runnable() {
+						@Override
+						public void run() {
+							try {
+								writer.updateDocument( MARKER_TERM, marker );
+								searcherManager.maybeRefresh();
+							}
+							catch (Exception e) {
+								reopenFailure.compareAndSet( null, e );
+								throw new RuntimeException( "Unable to reopen the searcher", e );
+							}
+						}
+					}, reopenIntervalMillis, reopenIntervalMillis, TimeUnit.MILLISECONDS
+			);
+		}
+
+		@TearDown(Level.Iteration)
+		public void assertReopened() {
+			Exception failure = reopenFailure.get();
+			if ( failure != null ) {
+				throw new IllegalStateException( "The searcher was not reopened after a failure", failure );
+			}
+		}
+
+		@TearDown
+		public void tearDown() throws Exception {
+			reopener.shutdownNow();
+			reopener.awaitTermination( 1, TimeUnit.MINUTES );
+			searcherManager.close();
+			writer.rollback();
+			directory.close();
+		}
+	}
+
+	@Setup
+	public void setUp() throws Exception {
+		setUpIndexes();
+		directory = openNativeIndexDirectory();
+		searcherManager = new SearcherManager( directory, null );
+		stateCache = new SortedSetDocValuesReaderStateCache();
+	}
+
+	@TearDown
+	public void tearDown() throws Exception {
+		searcherManager.close();
+		directory.close();
+	}
+
+	@Benchmark
+	public void perQueryState() throws Exception {
+		IndexSearcher searcher = searcherManager.acquire();
+		try {
+			SortedSetDocValuesReaderState docValuesReaderState =
+					new DefaultSortedSetDocValuesReaderState( searcher.getIndexReader() );
+			FacetResult topFacetResult = luceneFaceting( searcher, docValuesReaderState, new MatchAllDocsQuery() );
+			assertTopAuthor( topFacetResult );
+		}
+		finally {
+			searcherManager.release( searcher );
+		}
+	}
+
+	@Benchmark
+	public void cachedState() throws Exception {
+		facetWithCachedState( searcherManager, stateCache );
+	}
+
+	@Benchmark
+	public void cachedStateWithReopen(ReopeningSearcher reopeningSearcher) throws Exception {
+		facetWithCachedState( reopeningSearcher.searcherManager, reopeningSearcher.stateCache );
+	}
+
+	private void facetWithCachedState(SearcherManager searcherManager, SortedSetDocValuesReaderStateCache stateCache)
+			throws Exception {
+		IndexSearcher searcher = searcherManager.acquire();
+		try {
+			SortedSetDocValuesReaderState docValuesReaderState = stateCache.getState( searcher.getIndexReader() );
+			FacetResult topFacetResult = luceneFaceting( searcher, docValuesReaderState, new MatchAllDocsQuery() );
+			assertTopAuthor( topFacetResult );
+		}
+		finally {
+			searcherManager.release( searcher );
+		}
+	}
+
+	// for testing in the IDE
+	public static void main(String[] args) throws Exception {
+		Options opt = new OptionsBuilder()
+				.include( ".*" + FacetStateCachingPerformance.class.getSimpleName() + ".*" )
+				.build();
+		new Runner( opt ).run();
+	}
+}
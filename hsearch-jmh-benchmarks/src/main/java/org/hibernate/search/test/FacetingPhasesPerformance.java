@@ -0,0 +1,173 @@
+package org.hibernate.search.test;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.lucene.facet.FacetResult;
+import org.apache.lucene.facet.FacetsCollector;
+import org.apache.lucene.facet.sortedset.DefaultSortedSetDocValuesReaderState;
+import org.apache.lucene.facet.sortedset.SortedSetDocValuesFacetCounts;
+import org.apache.lucene.facet.sortedset.SortedSetDocValuesReaderState;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.MatchAllDocsQuery;
+import org.apache.lucene.store.Directory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import org.hibernate.Session;
+import org.hibernate.search.FullTextQuery;
+import org.hibernate.search.FullTextSession;
+import org.hibernate.search.Search;
+import org.hibernate.search.query.dsl.QueryBuilder;
+import org.hibernate.search.query.facet.Facet;
+import org.hibernate.search.query.facet.FacetingRequest;
+
+/**
+ * Runs the same requests as {@code SearchFacetingPerformance.hsearchFaceting} and {@code luceneFaceting}, timing
+ * each phase with a {@link PhaseTimer}. With {@code -prof metrics} the mean, median, 99th percentile and maximum of
+ * each phase over all threads are reported after each iteration, next to the JMH score.
+ * <p>
+ * Hibernate Search collects the facets and converts them into {@code Facet} objects while executing the query, so
+ * both are reported as the {@code search} phase.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@Warmup(iterations = 1)
+@Measurement(iterations = 2)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+public class FacetingPhasesPerformance extends AbstractFacetingBenchmark {
+	private Directory directory;
+	private DirectoryReader reader;
+	private IndexSearcher searcher;
+
+	@State(Scope.Thread)
+	public static class HSearchPhases {
+		private static final int OPEN_SESSION = 0;
+		private static final int FULL_TEXT_SESSION = 1;
+		private static final int QUERY_BUILDER = 2;
+		private static final int FACETING_REQUEST = 3;
+		private static final int FULL_TEXT_QUERY = 4;
+		private static final int SEARCH = 5;
+		private static final int CLOSE_SESSION = 6;
+
+		private final PhaseTimer timer = new PhaseTimer(
+				"openSession",
+				"getFullTextSession",
+				"buildQueryBuilder",
+				"createFacetingRequest",
+				"createFullTextQuery",
+				"search",
+				"close"
+		);
+
+		@TearDown(Level.Iteration)
+		public void recordPhases() {
+			timer.record();
+		}
+	}
+
+	@State(Scope.Thread)
+	public static class LucenePhases {
+		private static final int READER_STATE = 0;
+		private static final int COLLECTION = 1;
+		private static final int COUNTING = 2;
+		private static final int TOP_CHILDREN = 3;
+
+		private final PhaseTimer timer = new PhaseTimer(
+				"readerState",
+				"collection",
+				"counting",
+				"getTopChildren"
+		);
+
+		@TearDown(Level.Iteration)
+		public void recordPhases() {
+			timer.record();
+		}
+	}
+
+	@Setup
+	public void setUp() throws Exception {
+		setUpIndexes();
+		directory = openNativeIndexDirectory();
+		reader = DirectoryReader.open( directory );
+		searcher = new IndexSearcher( reader );
+	}
+
+	@TearDown
+	public void tearDown() throws IOException {
+		reader.close();
+		directory.close();
+	}
+
+	@Benchmark
+	public void hsearchFaceting(HSearchPhases phases) {
+		PhaseTimer timer = phases.timer;
+		timer.start();
+		Session session = sessionFactory.openSession();
+		timer.endOf( HSearchPhases.OPEN_SESSION );
+		FullTextSession fullTextSession = Search.getFullTextSession( session );
+		timer.endOf( HSearchPhases.FULL_TEXT_SESSION );
+		try {
+			QueryBuilder builder = fullTextSession.getSearchFactory()
+					.buildQueryBuilder()
+					.forEntity( Book.class )
+					.get();
+			timer.endOf( HSearchPhases.QUERY_BUILDER );
+			FacetingRequest facetingRequest = createAuthorFacetingRequest( builder );
+			timer.endOf( HSearchPhases.FACETING_REQUEST );
+			FullTextQuery fullTextQuery = fullTextSession.createFullTextQuery( new MatchAllDocsQuery(), Book.class );
+			fullTextQuery.getFacetManager().enableFaceting( facetingRequest );
+			timer.endOf( HSearchPhases.FULL_TEXT_QUERY );
+			List<Facet> facets = fullTextQuery.getFacetManager().getFacets( AUTHOR_NAME_FACET );
+			timer.endOf( HSearchPhases.SEARCH );
+			assertTopAuthor( facets );
+			timer.start();
+		}
+		finally {
+			fullTextSession.close();
+		}
+		timer.endOf( HSearchPhases.CLOSE_SESSION );
+	}
+
+	@Benchmark
+	public void luceneFaceting(LucenePhases phases) throws Exception {
+		PhaseTimer timer = phases.timer;
+		timer.start();
+		SortedSetDocValuesReaderState docValuesReaderState = new DefaultSortedSetDocValuesReaderState( reader );
+		timer.endOf( LucenePhases.READER_STATE );
+		FacetsCollector facetsCollector = new FacetsCollector();
+		searcher.search( new MatchAllDocsQuery(), facetsCollector );
+		timer.endOf( LucenePhases.COLLECTION );
+		SortedSetDocValuesFacetCounts facets = new SortedSetDocValuesFacetCounts(
+				docValuesReaderState, facetsCollector
+		);
+		timer.endOf( LucenePhases.COUNTING );
+		FacetResult topFacetResult = facets.getTopChildren( MAX_FACET_COUNT, AUTHOR_NAME_FIELD );
+		timer.endOf( LucenePhases.TOP_CHILDREN );
+		assertTopAuthor( topFacetResult );
+	}
+
+	// for testing in the IDE
+	public static void main(String[] args) throws Exception {
+		Options opt = new OptionsBuilder()
+				.include( ".*" + FacetingPhasesPerformance.class.getSimpleName() + ".*" )
+				.addProfiler( MetricsProfiler.class )
+				.build();
+		new Runner( opt ).run();
+	}
+}
@@ -0,0 +1,168 @@
+package org.hibernate.search.test;
+
+import java.io.File;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import org.hibernate.CacheMode;
+import org.hibernate.FetchMode;
+import org.hibernate.FlushMode;
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.Transaction;
+import org.hibernate.search.FullTextSession;
+import org.hibernate.search.Search;
+
+/**
+ * Compares re-indexing all books with a hand-rolled scroll, {@code index()} and {@code flushToIndexes()} loop
+ * against the {@code MassIndexer}. Each invocation purges and rebuilds the whole index, the {@code entities}
+ * counter reports the indexed entities per second. Run with {@code -prof peakheap} to get the peak heap usage.
+ */
+@BenchmarkMode(Mode.Throughput)
+@Warmup(iterations = 1)
+@Measurement(iterations = 2)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Benchmark)
+public class HSearchIndexingPerformance extends AbstractBookBenchmark {
+	private static final String REINDEX_DIR = "target/hsearch-lucene-reindex";
+
+	private SessionFactory sessionFactory;
+	private long bookCount;
+
+	@State(Scope.Benchmark)
+	public static class ManualIndexingParameters {
+		/**
+		 * The number of entities after which the index work gets flushed and the session cleared.
+		 */
+		@Param({ "25", "100", "1000" })
+		public int batchSize;
+
+		@Param({ "25", "100", "1000" })
+		public int fetchSize;
+	}
+
+	@State(Scope.Benchmark)
+	public static class MassIndexerParameters {
+		@Param({ "1", "2", "4", "8" })
+		public int threadsToLoadObjects;
+
+		@Param({ "10", "25", "100" })
+		public int batchSizeToLoadObjects;
+
+		@Param({ "100", "1000" })
+		public int idFetchSize;
+	}
+
+	@AuxCounters
+	@State(Scope.Thread)
+	public static class IndexingCounters {
+		public long entities;
+
+		@Setup(Level.Iteration)
+		public void reset() {
+			entities = 0;
+		}
+	}
+
+	@Setup
+	public void setUp() throws Exception {
+		sessionFactory = openDataSet();
+		Session session = sessionFactory.openSession();
+		try {
+			bookCount = (Long) session.createQuery( "select count(*) from Book" ).uniqueResult();
+		}
+		finally {
+			session.close();
+		}
+	}
+
+	@TearDown
+	public void tearDown() {
+		sessionFactory.close();
+	}
+
+	@Benchmark
+	public void manualIndexing(ManualIndexingParameters parameters, IndexingCounters counters) {
+		FullTextSession fullTextSession = Search.getFullTextSession( sessionFactory.openSession() );
+		try {
+			fullTextSession.setFlushMode( FlushMode.MANUAL );
+			fullTextSession.setCacheMode( CacheMode.IGNORE );
+			Transaction transaction = fullTextSession.beginTransaction();
+			fullTextSession.purgeAll( Book.class );
+			fullTextSession.flushToIndexes();
+
+			// authors are loaded by a separate select, joining them would return one row (and book) per author
+			ScrollableResults results = fullTextSession.createCriteria( Book.class )
+					.setFetchMode( "authors", FetchMode.SELECT )
+					.setFetchSize( parameters.fetchSize )
+					.scroll( ScrollMode.FORWARD_ONLY );
+			int index = 0;
+			while ( results.next() ) {
+				index++;
+				fullTextSession.index( results.get( 0 ) );
+				if ( index % parameters.batchSize == 0 ) {
+					fullTextSession.flushToIndexes();
+					fullTextSession.clear();
+				}
+			}
+			results.close();
+			transaction.commit();
+			counters.entities += index;
+		}
+		finally {
+			fullTextSession.close();
+		}
+	}
+
+	@Benchmark
+	public void massIndexer(MassIndexerParameters parameters, IndexingCounters counters) throws Exception {
+		FullTextSession fullTextSession = Search.getFullTextSession( sessionFactory.openSession() );
+		try {
+			// no optimization, to be comparable with the manual loop
+			fullTextSession.createIndexer( Book.class )
+					.threadsToLoadObjects( parameters.threadsToLoadObjects )
+					.batchSizeToLoadObjects( parameters.batchSizeToLoadObjects )
+					.idFetchSize( parameters.idFetchSize )
+					.cacheMode( CacheMode.IGNORE )
+					.optimizeAfterPurge( false )
+					.optimizeOnFinish( false )
+					.startAndWait();
+			counters.entities += bookCount;
+		}
+		finally {
+			fullTextSession.close();
+		}
+	}
+
+	@Override
+	protected File getHSearchIndexDir() {
+		return new File( REINDEX_DIR, getDataSetName() );
+	}
+
+	// for testing in the IDE
+	public static void main(String[] args) throws Exception {
+		Options opt = new OptionsBuilder()
+				.include( ".*" + HSearchIndexingPerformance.class.getSimpleName() + ".*" )
+				.addProfiler( PeakHeapProfiler.class )
+				.build();
+		new Runner( opt ).run();
+	}
+}
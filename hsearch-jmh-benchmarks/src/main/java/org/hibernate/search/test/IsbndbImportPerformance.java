@@ -0,0 +1,398 @@
+package org.hibernate.search.test;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.cfg.Configuration;
+import org.hibernate.cfg.Environment;
+import org.hibernate.jdbc.ReturningWork;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Compares the import of an isbndb.com JSON dump via {@link IsbndbLoader} against the path of
+ * {@code isbndb/create_import_sql.rb}. The dump is written from the data set in the isbndb format to
+ * {@code target/isbndb} first, each invocation imports it into an empty database in {@code target/isbndb-import}.
+ * The {@code books} counter reports the imported books per second.
+ * <p>
+ * {@code scriptImport} is a port of the Ruby script: it parses the whole dump into memory, collects the insert
+ * statements of each table and writes them to {@code import.sql}, which is then executed one statement at a time
+ * with auto-commit, as {@code mysql < import.sql} does. The Ruby interpreter itself is not part of the measurement.
+ * Run with {@code -prof peakheap} to compare the peak heap usage as well.
+ * <p>
+ * After each invocation the row counts and the top author of the imported data are compared with the data set.
+ */
+@BenchmarkMode(Mode.Throughput)
+@Warmup(iterations = 1)
+@Measurement(iterations = 2)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Benchmark)
+public class IsbndbImportPerformance extends AbstractBookBenchmark {
+	private static final String DUMP_DIR = "target/isbndb";
+	private static final String IMPORT_DIR = "target/isbndb-import";
+	private static final String[] TABLES = { "Book_Author", "Book", "Author" };
+	// the dump only contains the authors of books
+	private static final String[] EXPECTED_ROW_COUNTS = {
+			"select count(*) from Book_Author",
+			"select count(*) from Book",
+			"select count(distinct authors_id) from Book_Author"
+	};
+	private static final String[] ROW_COUNTS = {
+			"select count(*) from Book_Author",
+			"select count(*) from Book",
+			"select count(*) from Author"
+	};
+
+	private SessionFactory sessionFactory;
+	private SessionFactory importSessionFactory;
+	private File dump;
+	private File importScript;
+	private long[] expectedRowCounts;
+	private String expectedTopAuthorOfDataSet;
+	private int expectedTopAuthorCountOfDataSet;
+
+	@AuxCounters
+	@State(Scope.Thread)
+	public static class ImportCounters {
+		public long books;
+
+		@Setup(Level.Iteration)
+		public void reset() {
+			books = 0;
+		}
+	}
+
+	@Setup
+	public void setUp() throws Exception {
+		sessionFactory = openDataSet();
+		determineExpectedTopAuthor( sessionFactory );
+		expectedTopAuthorOfDataSet = expectedTopAuthor;
+		expectedTopAuthorCountOfDataSet = expectedTopAuthorCount;
+		expectedRowCounts = countRows( sessionFactory, EXPECTED_ROW_COUNTS );
+
+		dump = new File( DUMP_DIR, getDataSetName() + ".json" );
+		if ( !dump.exists() ) {
+			writeDump( sessionFactory, dump );
+		}
+		importScript = new File( IMPORT_DIR, getDataSetName() + "-import.sql" );
+
+		Configuration cfg = buildConfiguration();
+		cfg.setProperty( Environment.DIALECT, "org.hibernate.dialect.H2Dialect" );
+		cfg.setProperty( Environment.DRIVER, "org.h2.Driver" );
+		cfg.setProperty( Environment.URL, "jdbc:h2:./" + IMPORT_DIR + "/" + getDataSetName() );
+		cfg.setProperty( Environment.USER, "sa" );
+		cfg.setProperty( Environment.PASS, "" );
+		cfg.setProperty( Environment.HBM2DDL_AUTO, "create" );
+		cfg.setProperty( "hibernate.search.autoregister_listeners", "false" );
+		importSessionFactory = cfg.buildSessionFactory();
+	}
+
+	@TearDown
+	public void tearDown() {
+		importSessionFactory.close();
+		sessionFactory.close();
+	}
+
+	@Setup(Level.Invocation)
+	public void emptyTables() {
+		doWork(
+				new ReturningWork<Void>() {
+					@Override
+					public Void execute(Connection connection) throws SQLException {
+						Statement statement = connection.createStatement();
+						try {
+							for ( String table : TABLES ) {
+								statement.execute( "delete from " + table );
+							}
+							connection.commit();
+						}
+						finally {
+							statement.close();
+						}
+						return null;
+					}
+				}
+		);
+	}
+
+	@TearDown(Level.Invocation)
+	public void assertImport() {
+		assertArrayEquals(
+				"Wrong number of rows in Book_Author, Book, Author",
+				expectedRowCounts,
+				countRows( importSessionFactory, ROW_COUNTS )
+		);
+		determineExpectedTopAuthor( importSessionFactory );
+		assertEquals( "Wrong top author", expectedTopAuthorOfDataSet, expectedTopAuthor );
+		assertEquals( "Wrong top author count", expectedTopAuthorCountOfDataSet, expectedTopAuthorCount );
+	}
+
+	@Benchmark
+	public void streamingImport(ImportCounters counters) {
+		counters.books += doWork(
+				new ReturningWork<Long>() {
+					@Override
+					public Long execute(Connection connection) throws SQLException {
+						try {
+							return new IsbndbLoader( IsbndbLoader.DEFAULT_BATCH_SIZE ).load( dump, connection );
+						}
+						catch (IOException e) {
+							throw new RuntimeException( e );
+						}
+					}
+				}
+		);
+	}
+
+	@Benchmark
+	public void scriptImport(ImportCounters counters) throws IOException {
+		counters.books += writeImportScript( dump, importScript );
+		doWork(
+				new ReturningWork<Void>() {
+					@Override
+					public Void execute(Connection connection) throws SQLException {
+						try {
+							executeScript( importScript, connection );
+						}
+						catch (IOException e) {
+							throw new RuntimeException( e );
+						}
+						return null;
+					}
+				}
+		);
+	}
+
+	/**
+	 * Port of {@code create_import_sql.rb}.
+	 *
+	 * @return the number of books
+	 */
+	private static int writeImportScript(File dump, File importScript) throws IOException {
+		JsonNode data = new ObjectMapper().readTree( dump );
+		List<String> bookInserts = new ArrayList<String>();
+		List<String> authorInserts = new ArrayList<String>();
+		List<String> bookAuthorInserts = new ArrayList<String>();
+		Map<String, Integer> authorIds = new HashMap<String, Integer>();
+
+		int bookId = 0;
+		for ( JsonNode book : data ) {
+			bookInserts.add(
+					"insert into Book (id, isbn, title, publisher) values (" + bookId + ", "
+							+ book.get( "isbn13" ).asText() + ", '" + escape( book.get( "title" ) ) + "', '"
+							+ escape( book.get( "publisher_text" ) ) + "');"
+			);
+			// authors listed twice for the same book are only linked once
+			List<Integer> linkedAuthors = new ArrayList<Integer>();
+			for ( JsonNode author : book.get( "author_data" ) ) {
+				String id = author.get( "id" ).asText();
+				Integer authorId = authorIds.get( id );
+				if ( authorId == null ) {
+					authorId = authorIds.size();
+					authorIds.put( id, authorId );
+					authorInserts.add(
+							"insert into Author (id, name) values (" + authorId + ", '"
+									+ escape( author.get( "name" ) ) + "');"
+					);
+				}
+				if ( !linkedAuthors.contains( authorId ) ) {
+					linkedAuthors.add( authorId );
+					bookAuthorInserts.add(
+							"insert into Book_Author (Book_id, authors_id) values (" + bookId + ", " + authorId + ");"
+					);
+				}
+			}
+			bookId++;
+		}
+
+		importScript.getParentFile().mkdirs();
+		PrintWriter writer = new PrintWriter(
+				Files.newBufferedWriter( importScript.toPath(), StandardCharsets.UTF_8 )
+		);
+		try {
+			writeLines( writer, bookInserts );
+			writeLines( writer, authorInserts );
+			writeLines( writer, bookAuthorInserts );
+		}
+		finally {
+			writer.close();
+		}
+		return bookId;
+	}
+
+	private static void writeLines(PrintWriter writer, List<String> lines) {
+		for ( String line : lines ) {
+			writer.println( line );
+		}
+	}
+
+	private static String escape(JsonNode value) {
+		return value.asText().replace( "'", "''" );
+	}
+
+	private static void executeScript(File importScript, Connection connection) throws IOException, SQLException {
+		boolean autoCommit = connection.getAutoCommit();
+		connection.setAutoCommit( true );
+		BufferedReader reader = Files.newBufferedReader( importScript.toPath(), StandardCharsets.UTF_8 );
+		Statement statement = connection.createStatement();
+		try {
+			String line;
+			while ( ( line = reader.readLine() ) != null ) {
+				statement.execute( line );
+			}
+		}
+		finally {
+			statement.close();
+			reader.close();
+			connection.setAutoCommit( autoCommit );
+		}
+	}
+
+	/**
+	 * Writes the books of the data set in the format of the isbndb.com API, including some fields not imported.
+	 */
+	private static void writeDump(SessionFactory sessionFactory, final File dump) throws IOException {
+		dump.getParentFile().mkdirs();
+		final File incompleteDump = new File( dump.getPath() + ".tmp" );
+		final JsonGenerator generator = new JsonFactory().createGenerator( incompleteDump, JsonEncoding.UTF8 );
+		Session session = sessionFactory.openSession();
+		try {
+			session.doReturningWork(
+					new ReturningWork<Void>() {
+						@Override
+						public Void execute(Connection connection) throws SQLException {
+							try {
+								writeBooks( connection, generator );
+							}
+							catch (IOException e) {
+								throw new RuntimeException( e );
+							}
+							return null;
+						}
+					}
+			);
+		}
+		finally {
+			session.close();
+			generator.close();
+		}
+		Files.move( incompleteDump.toPath(), dump.toPath() );
+	}
+
+	private static void writeBooks(Connection connection, JsonGenerator generator) throws SQLException, IOException {
+		Statement statement = connection.createStatement();
+		try {
+			ResultSet books = statement.executeQuery(
+					"select b.id, b.isbn, b.title, b.publisher, a.id, a.name from Book b "
+							+ "left join Book_Author ba on ba.Book_id = b.id "
+							+ "left join Author a on a.id = ba.authors_id "
+							+ "order by b.id"
+			);
+			generator.writeStartArray();
+			int currentBook = -1;
+			while ( books.next() ) {
+				int bookId = books.getInt( 1 );
+				if ( bookId != currentBook ) {
+					if ( currentBook != -1 ) {
+						generator.writeEndArray();
+						generator.writeEndObject();
+					}
+					currentBook = bookId;
+					generator.writeStartObject();
+					generator.writeStringField( "book_id", "book_" + bookId );
+					generator.writeStringField( "isbn13", books.getString( 2 ) );
+					generator.writeStringField( "title", books.getString( 3 ) );
+					generator.writeStringField( "title_latin", books.getString( 3 ) );
+					generator.writeStringField( "publisher_text", books.getString( 4 ) );
+					generator.writeArrayFieldStart( "subject_ids" );
+					generator.writeEndArray();
+					generator.writeArrayFieldStart( "author_data" );
+				}
+				String authorName = books.getString( 6 );
+				if ( authorName != null ) {
+					generator.writeStartObject();
+					generator.writeStringField( "id", "author_" + books.getInt( 5 ) );
+					generator.writeStringField( "name", authorName );
+					generator.writeEndObject();
+				}
+			}
+			if ( currentBook != -1 ) {
+				generator.writeEndArray();
+				generator.writeEndObject();
+			}
+			generator.writeEndArray();
+		}
+		finally {
+			statement.close();
+		}
+	}
+
+	private static long[] countRows(SessionFactory sessionFactory, String[] queries) {
+		Session session = sessionFactory.openSession();
+		try {
+			long[] counts = new long[queries.length];
+			for ( int i = 0; i < queries.length; i++ ) {
+				counts[i] = ( (Number) session.createSQLQuery( queries[i] ).uniqueResult() ).longValue();
+			}
+			return counts;
+		}
+		finally {
+			session.close();
+		}
+	}
+
+	private <T> T doWork(ReturningWork<T> work) {
+		Session session = importSessionFactory.openSession();
+		try {
+			return session.doReturningWork( work );
+		}
+		finally {
+			session.close();
+		}
+	}
+
+	// for testing in the IDE
+	public static void main(String[] args) throws Exception {
+		Options opt = new OptionsBuilder()
+				.include( ".*" + IsbndbImportPerformance.class.getSimpleName() + ".*" )
+				.build();
+		new Runner( opt ).run();
+	}
+}
@@ -0,0 +1,269 @@
+package org.hibernate.search.test;
+
+import java.io.File;
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+/**
+ * Loads an isbndb.com JSON dump (see the isbndb directory) into the {@code Book}, {@code Author} and
+ * {@code Book_Author} tables. Unlike {@code create_import_sql.rb} the dump is stream-parsed, so besides the
+ * current book only the ids of the authors seen so far are kept in memory. The rows are written via JDBC batches of
+ * {@code batchSize} books, committing every {@value #BOOKS_PER_TRANSACTION} books.
+ * <p>
+ * Books get consecutive ids starting at 1, authors are identified by their isbndb id. All authors of a book are
+ * kept, authors listed twice for the same book are only linked once. Values longer than
+ * {@value #MAX_COLUMN_LENGTH} characters are truncated to fit the columns.
+ * <p>
+ * Not thread-safe, the counters refer to the last {@link #load(File, Connection)}.
+ */
+public class IsbndbLoader {
+	public static final int DEFAULT_BATCH_SIZE = 1000;
+	private static final int BOOKS_PER_TRANSACTION = 10000;
+	private static final int MAX_COLUMN_LENGTH = 255;
+
+	private final JsonFactory jsonFactory = new JsonFactory();
+	private final int batchSize;
+
+	private long books;
+	private long authors;
+	private long bookAuthors;
+
+	public IsbndbLoader(int batchSize) {
+		if ( batchSize < 1 ) {
+			throw new IllegalArgumentException( "The batch size must be positive" );
+		}
+		this.batchSize = batchSize;
+	}
+
+	/**
+	 * Inserts the books of the given dump. The tables are expected to be empty.
+	 *
+	 * @param dump the JSON dump, an array of book objects
+	 * @param connection the connection to the target database, its auto-commit mode is restored afterwards
+	 *
+	 * @return the number of inserted books
+	 */
+	public long load(File dump, Connection connection) throws IOException, SQLException {
+		books = 0;
+		authors = 0;
+		bookAuthors = 0;
+
+		boolean autoCommit = connection.getAutoCommit();
+		connection.setAutoCommit( false );
+		JsonParser parser = jsonFactory.createParser( dump );
+		Inserts inserts = new Inserts( connection );
+		try {
+			if ( parser.nextToken() != JsonToken.START_ARRAY ) {
+				throw new JsonParseException( "Expected an array of books", parser.getCurrentLocation() );
+			}
+			BookRecord book = new BookRecord();
+			Map<String, Integer> authorIds = new HashMap<String, Integer>();
+			while ( parser.nextToken() == JsonToken.START_OBJECT ) {
+				readBook( parser, book );
+				insertBook( book, authorIds, inserts );
+				if ( books % batchSize == 0 ) {
+					inserts.executeBatches();
+				}
+				if ( books % BOOKS_PER_TRANSACTION == 0 ) {
+					inserts.executeBatches();
+					connection.commit();
+				}
+			}
+			inserts.executeBatches();
+			connection.commit();
+			return books;
+		}
+		catch (SQLException | IOException | RuntimeException e) {
+			connection.rollback();
+			throw e;
+		}
+		finally {
+			inserts.close();
+			parser.close();
+			connection.setAutoCommit( autoCommit );
+		}
+	}
+
+	public long getBooks() {
+		return books;
+	}
+
+	public long getAuthors() {
+		return authors;
+	}
+
+	public long getBookAuthors() {
+		return bookAuthors;
+	}
+
+	private void insertBook(BookRecord book, Map<String, Integer> authorIds, Inserts inserts) throws SQLException {
+		int bookId = (int) ++books;
+		inserts.book.setInt( 1, bookId );
+		inserts.book.setString( 2, truncate( book.isbn ) );
+		inserts.book.setString( 3, truncate( book.title ) );
+		inserts.book.setString( 4, truncate( book.publisher ) );
+		inserts.book.addBatch();
+
+		List<Integer> linkedAuthors = new ArrayList<Integer>( book.authorIds.size() );
+		for ( int i = 0; i < book.authorIds.size(); i++ ) {
+			Integer authorId = authorIds.get( book.authorIds.get( i ) );
+			if ( authorId == null ) {
+				authorId = (int) ++authors;
+				authorIds.put( book.authorIds.get( i ), authorId );
+				inserts.author.setInt( 1, authorId );
+				inserts.author.setString( 2, truncate( book.authorNames.get( i ) ) );
+				inserts.author.addBatch();
+			}
+			if ( !linkedAuthors.contains( authorId ) ) {
+				linkedAuthors.add( authorId );
+				inserts.bookAuthor.setInt( 1, bookId );
+				inserts.bookAuthor.setInt( 2, authorId );
+				inserts.bookAuthor.addBatch();
+				bookAuthors++;
+			}
+		}
+	}
+
+	/**
+	 * Reads the fields of the book object the parser is positioned at, skipping the ones not imported.
+	 */
+	private static void readBook(JsonParser parser, BookRecord book) throws IOException {
+		book.clear();
+		while ( parser.nextToken() == JsonToken.FIELD_NAME ) {
+			String field = parser.getCurrentName();
+			JsonToken value = parser.nextToken();
+			if ( "isbn13".equals( field ) ) {
+				book.isbn = parser.getValueAsString();
+			}
+			else if ( "title".equals( field ) ) {
+				book.title = parser.getValueAsString();
+			}
+			else if ( "publisher_text".equals( field ) ) {
+				book.publisher = parser.getValueAsString();
+			}
+			else if ( "author_data".equals( field ) && value == JsonToken.START_ARRAY ) {
+				readAuthors( parser, book );
+			}
+			else {
+				parser.skipChildren();
+			}
+		}
+	}
+
+	private static void readAuthors(JsonParser parser, BookRecord book) throws IOException {
+		while ( parser.nextToken() == JsonToken.START_OBJECT ) {
+			String id = null;
+			String name = null;
+			while ( parser.nextToken() == JsonToken.FIELD_NAME ) {
+				String field = parser.getCurrentName();
+				parser.nextToken();
+				if ( "id".equals( field ) ) {
+					id = parser.getValueAsString();
+				}
+				else if ( "name".equals( field ) ) {
+					name = parser.getValueAsString();
+				}
+				else {
+					parser.skipChildren();
+				}
+			}
+			if ( id != null ) {
+				book.authorIds.add( id );
+				book.authorNames.add( name );
+			}
+		}
+	}
+
+	private static String truncate(String value) {
+		return value == null || value.length() <= MAX_COLUMN_LENGTH ? value : value.substring( 0, MAX_COLUMN_LENGTH );
+	}
+
+	/**
+	 * The fields of the book currently read, reused for all books.
+	 */
+	private static class BookRecord {
+		private String isbn;
+		private String title;
+		private String publisher;
+		private final List<String> authorIds = new ArrayList<String>();
+		private final List<String> authorNames = new ArrayList<String>();
+
+		private void clear() {
+			isbn = null;
+			title = null;
+			publisher = null;
+			authorIds.clear();
+			authorNames.clear();
+		}
+	}
+
+	private static class Inserts {
+		private final PreparedStatement book;
+		private final PreparedStatement author;
+		private final PreparedStatement bookAuthor;
+
+		private Inserts(Connection connection) throws SQLException {
+			book = connection.prepareStatement( "insert into Book (id, isbn, title, publisher) values (?, ?, ?, ?)" );
+			author = connection.prepareStatement( "insert into Author (id, name) values (?, ?)" );
+			bookAuthor = connection.prepareStatement( "insert into Book_Author (Book_id, authors_id) values (?, ?)" );
+		}
+
+		/**
+		 * Executes the pending batches, the links last as they refer to the books and authors.
+		 */
+		private void executeBatches() throws SQLException {
+			book.executeBatch();
+			author.executeBatch();
+			bookAuthor.executeBatch();
+		}
+
+		private void close() throws SQLException {
+			book.close();
+			author.close();
+			bookAuthor.close();
+		}
+	}
+
+	/**
+	 * Loads a dump into the given database, e.g. {@code IsbndbLoader books.json
+	 * jdbc:mysql://localhost/books?rewriteBatchedStatements=true hibernate hibernate}.
+	 */
+	public static void main(String[] args) throws Exception {
+		if ( args.length < 2 ) {
+			System.err.println( "Usage: IsbndbLoader <dump.json> <jdbc url> [user] [password]" );
+			System.exit( 1 );
+		}
+		Connection connection = DriverManager.getConnection(
+				args[1],
+				args.length > 2 ? args[2] : null,
+				args.length > 3 ? args[3] : null
+		);
+		try {
+			long start = System.nanoTime();
+			IsbndbLoader loader = new IsbndbLoader( DEFAULT_BATCH_SIZE );
+			loader.load( new File( args[0] ), connection );
+			System.out.printf(
+					"Loaded %d books, %d authors and %d book authors in %d ms%n",
+					loader.getBooks(),
+					loader.getAuthors(),
+					loader.getBookAuthors(),
+					( System.nanoTime() - start ) / 1000000
+			);
+		}
+		finally {
+			connection.close();
+		}
+	}
+}
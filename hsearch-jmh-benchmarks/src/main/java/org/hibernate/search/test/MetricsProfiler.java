@@ -0,0 +1,136 @@
+package org.hibernate.search.test;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+import org.HdrHistogram.Histogram;
+import org.openjdk.jmh.infra.BenchmarkParams;
+import org.openjdk.jmh.infra.IterationParams;
+import org.openjdk.jmh.profile.InternalProfiler;
+import org.openjdk.jmh.profile.ProfilerResult;
+import org.openjdk.jmh.results.AggregationPolicy;
+import org.openjdk.jmh.results.IterationResult;
+import org.openjdk.jmh.results.Result;
+
+/**
+ * Reports values recorded by the benchmarks themselves as secondary results. Enable it with {@code -prof metrics},
+ * without it the recorded values are dropped.
+ * <p>
+ * A gauge keeps its value until the end of the trial and is reported after each iteration, so it may be set in a
+ * trial-level setup. Durations are collected per iteration, typically from an iteration-level teardown of each
+ * thread, and reported as mean, median, 99th percentile and maximum over all threads.
+ */
+public class MetricsProfiler implements InternalProfiler {
+	private static final int SIGNIFICANT_DIGITS = 2;
+
+	private static final Map<String, Gauge> gauges = new TreeMap<String, Gauge>();
+	private static final Map<String, Histogram> durations = new TreeMap<String, Histogram>();
+	private static volatile boolean enabled;
+	private static BenchmarkParams currentBenchmark;
+
+	/**
+	 * Sets the value reported for the given gauge after each iteration of the current trial.
+	 */
+	public static void gauge(String label, double value, String unit) {
+		if ( enabled ) {
+			synchronized ( gauges ) {
+				gauges.put( label, new Gauge( value, unit ) );
+			}
+		}
+	}
+
+	/**
+	 * Adds the given durations in nanoseconds to the durations of the current iteration.
+	 */
+	public static void durations(String label, Histogram histogram) {
+		if ( enabled ) {
+			synchronized ( durations ) {
+				Histogram iterationDurations = durations.get( label );
+				if ( iterationDurations == null ) {
+					iterationDurations = new Histogram( SIGNIFICANT_DIGITS );
+					durations.put( label, iterationDurations );
+				}
+				iterationDurations.add( histogram );
+			}
+		}
+	}
+
+	@Override
+	public boolean checkSupport(List<String> msgs) {
+		return true;
+	}
+
+	@Override
+	public String label() {
+		return "metrics";
+	}
+
+	@Override
+	public String getDescription() {
+		return "Gauges and durations recorded by the benchmarks";
+	}
+
+	@Override
+	public void beforeIteration(BenchmarkParams benchmarkParams, IterationParams iterationParams) {
+		// without forking, the trials share this VM
+		if ( benchmarkParams != currentBenchmark ) {
+			synchronized ( gauges ) {
+				gauges.clear();
+			}
+			currentBenchmark = benchmarkParams;
+		}
+		synchronized ( durations ) {
+			durations.clear();
+		}
+		enabled = true;
+	}
+
+	@Override
+	public Collection<? extends Result> afterIteration(BenchmarkParams benchmarkParams,
+			IterationParams iterationParams,
+			IterationResult result) {
+		List<Result> results = new ArrayList<Result>();
+		synchronized ( gauges ) {
+			for ( Map.Entry<String, Gauge> gauge : gauges.entrySet() ) {
+				results.add(
+						new ProfilerResult(
+								"·" + gauge.getKey(),
+								gauge.getValue().value,
+								gauge.getValue().unit,
+								AggregationPolicy.AVG
+						)
+				);
+			}
+		}
+		synchronized ( durations ) {
+			for ( Map.Entry<String, Histogram> duration : durations.entrySet() ) {
+				String label = "·" + duration.getKey();
+				Histogram histogram = duration.getValue();
+				results.add( durationResult( label + ".mean", histogram.getMean(), AggregationPolicy.AVG ) );
+				results.add( durationResult( label + ".p50", histogram.getValueAtPercentile( 50 ), AggregationPolicy.AVG ) );
+				results.add( durationResult( label + ".p99", histogram.getValueAtPercentile( 99 ), AggregationPolicy.AVG ) );
+				results.add( durationResult( label + ".max", histogram.getMaxValue(), AggregationPolicy.MAX ) );
+			}
+			durations.clear();
+		}
+		return results;
+	}
+
+	private static ProfilerResult durationResult(String label, double nanos, AggregationPolicy policy) {
+		return new ProfilerResult( label, nanos / TimeUnit.MICROSECONDS.toNanos( 1 ), "us", policy );
+	}
+
+	private static class Gauge {
+		private final double value;
+		private final String unit;
+
+		private Gauge(double value, String unit) {
+			this.value = value;
+			this.unit = unit;
+		}
+	}
+}
@@ -0,0 +1,446 @@
+package org.hibernate.search.test;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.facet.FacetResult;
+import org.apache.lucene.facet.FacetsConfig;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.MatchAllDocsQuery;
+import org.apache.lucene.search.SearcherManager;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.FSDirectory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import org.hibernate.FlushMode;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.Transaction;
+import org.hibernate.cfg.Configuration;
+import org.hibernate.search.FullTextSession;
+import org.hibernate.search.Search;
+import org.hibernate.search.query.facet.Facet;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Faceting while books are being indexed. Each group runs a writer thread, alternately updating the title of a
+ * random book and adding a copy of it, two threads faceting on the authors and a thread measuring the index
+ * freshness lag, i.e. the time from writing a new book to the index until a search finds it. The new book is
+ * prepared before each freshness invocation, so that only the lag is measured. Run in sample time mode, so that the
+ * percentiles of both the faceting latency and the freshness lag are reported.
+ * <p>
+ * The indexes are copied to {@code target/mixed-workload} first and only the index changes are applied, the
+ * database transactions are rolled back, so that the data set stays untouched. The native index is reopened every
+ * {@code refreshIntervalMillis}, Hibernate Search runs with the {@code directory-based} or the
+ * {@code near-real-time} index manager.
+ */
+@BenchmarkMode(Mode.SampleTime)
+@Warmup(iterations = 1)
+@Measurement(iterations = 2)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+public class MixedReadWritePerformance extends AbstractFacetingBenchmark {
+	private static final String MIXED_WORKLOAD_DIR = "target/mixed-workload";
+	private static final long POLL_INTERVAL_NANOS = TimeUnit.MICROSECONDS.toNanos( 100 );
+	private static final long MAX_FRESHNESS_LAG_NANOS = TimeUnit.MINUTES.toNanos( 1 );
+
+	/**
+	 * The {@code max_buffered_docs} of the index writers of both engines.
+	 */
+	@Param({ "100", "1000", "10000" })
+	public int maxBufferedDocs;
+
+	private final AtomicLong newBookCount = new AtomicLong();
+	private int minBookId;
+	private int maxBookId;
+
+	@State(Scope.Benchmark)
+	public static class NativeIndex {
+		private static final Term PROBE_TERM = new Term( "freshness", "probe" );
+
+		@Param({ "10", "100", "1000" })
+		public long refreshIntervalMillis;
+
+		private MixedReadWritePerformance benchmark;
+		private Directory directory;
+		private IndexWriter writer;
+		private SearcherManager searcherManager;
+		private SortedSetDocValuesReaderStateCache stateCache;
+		private ScheduledExecutorService reopener;
+		private final AtomicReference<Exception> reopenFailure = new AtomicReference<Exception>();
+		private final FacetsConfig facetsConfig = NativeLuceneIndexer.createFacetsConfig();
+
+		@Setup
+		public void setUp(MixedReadWritePerformance benchmark) throws Exception {
+			this.benchmark = benchmark;
+			File indexDir = new File( benchmark.getMixedWorkloadDir(), "native" );
+			deleteDirectory( indexDir.toPath() );
+			copyDirectory( benchmark.getNativeIndexDir().toPath(), indexDir.toPath() );
+
+			directory = FSDirectory.open( indexDir );
+			IndexWriterConfig iwc = NativeLuceneIndexer.createIndexWriterConfig();
+			iwc.setOpenMode( IndexWriterConfig.OpenMode.APPEND );
+			iwc.setMaxBufferedDocs( benchmark.maxBufferedDocs );
+			writer = new IndexWriter( directory, iwc );
+			searcherManager = new SearcherManager( writer, true, null );
+			stateCache = new SortedSetDocValuesReaderStateCache();
+
+			reopener = Executors.newSingleThreadScheduledExecutor();
+			reopener.scheduleAtFixedRate(
+					new Runnable() {
+						@Override
+						public void run() {
+							try {
+								searcherManager.maybeRefresh();
+							}
+							catch (IOException e) {
+								reopenFailure.compareAndSet( null, e );
+								throw new RuntimeException( "Unable to reopen the searcher", e );
+							}
+						}
+					}, refreshIntervalMillis, refreshIntervalMillis, TimeUnit.MILLISECONDS
+			);
+		}
+
+		@TearDown(Level.Iteration)
+		public void assertReopened() {
+			Exception failure = reopenFailure.get();
+			if ( failure != null ) {
+				throw new IllegalStateException( "The searcher was not reopened after a failure", failure );
+			}
+		}
+
+		@TearDown
+		public void tearDown() throws Exception {
+			reopener.shutdownNow();
+			reopener.awaitTermination( 1, TimeUnit.MINUTES );
+			searcherManager.close();
+			writer.close();
+			directory.close();
+		}
+	}
+
+	@State(Scope.Benchmark)
+	public static class HSearchIndex {
+		@Param({ "directory-based", "near-real-time" })
+		public String indexManager;
+
+		private MixedReadWritePerformance benchmark;
+		private SessionFactory sessionFactory;
+
+		@Setup
+		public void setUp(MixedReadWritePerformance benchmark) throws Exception {
+			this.benchmark = benchmark;
+			File indexBase = new File( benchmark.getMixedWorkloadDir(), "hsearch" );
+			deleteDirectory( indexBase.toPath() );
+			copyDirectory( benchmark.getHSearchIndexDir().toPath(), indexBase.toPath() );
+
+			Configuration cfg = benchmark.buildConfiguration();
+			cfg.setProperty( "hibernate.search.default.indexBase", indexBase.getPath() );
+			cfg.setProperty( "hibernate.search.default.indexmanager", indexManager );
+			cfg.setProperty(
+					"hibernate.search.default.indexwriter.max_buffered_docs",
+					String.valueOf( benchmark.maxBufferedDocs )
+			);
+			sessionFactory = cfg.buildSessionFactory();
+			if ( "h2".equals( benchmark.database ) ) {
+				restartIdSequence();
+			}
+		}
+
+		@TearDown
+		public void tearDown() {
+			sessionFactory.close();
+		}
+
+		/**
+		 * The data set is inserted with explicit ids, so the sequence used for the new books needs to start after
+		 * them. Depending on the Hibernate version which created the schema the sequence might not exist yet.
+		 */
+		private void restartIdSequence() {
+			Session session = sessionFactory.openSession();
+			try {
+				Integer maxBookId = (Integer) session.createQuery( "select max(b.id) from Book b" ).uniqueResult();
+				Integer maxAuthorId = (Integer) session.createQuery( "select max(a.id) from Author a" )
+						.uniqueResult();
+				long nextId = Math.max( maxBookId, maxAuthorId ) + 1L;
+				Transaction transaction = session.beginTransaction();
+				session.createSQLQuery( "create sequence if not exists hibernate_sequence" ).executeUpdate();
+				session.createSQLQuery( "alter sequence hibernate_sequence restart with " + nextId ).executeUpdate();
+				transaction.commit();
+			}
+			finally {
+				session.close();
+			}
+		}
+	}
+
+	@State(Scope.Thread)
+	public static class Writer {
+		private final Random random = new Random();
+		private long writes;
+
+		private boolean nextIsUpdate() {
+			return writes++ % 2 == 0;
+		}
+	}
+
+	/**
+	 * The new book of the next {@code hsearchFreshness} invocation, saved but not yet indexed. The database
+	 * transaction is rolled back after the invocation, the index change stays.
+	 */
+	@State(Scope.Thread)
+	public static class HSearchProbe {
+		private final Random random = new Random();
+		private FullTextSession fullTextSession;
+		private Transaction transaction;
+		private Book book;
+		private TermQuery query;
+
+		@Setup(Level.Invocation)
+		public void prepare(HSearchIndex index) {
+			MixedReadWritePerformance benchmark = index.benchmark;
+			fullTextSession = Search.getFullTextSession( index.sessionFactory.openSession() );
+			fullTextSession.setFlushMode( FlushMode.MANUAL );
+			transaction = fullTextSession.beginTransaction();
+			String isbn = "fresh-" + benchmark.newBookCount.incrementAndGet();
+			book = copyOf( benchmark.loadRandomBook( fullTextSession, random ), isbn );
+			fullTextSession.save( book );
+			query = new TermQuery( new Term( "isbn", isbn ) );
+		}
+
+		@TearDown(Level.Invocation)
+		public void rollback() {
+			try {
+				transaction.rollback();
+			}
+			finally {
+				fullTextSession.close();
+			}
+		}
+	}
+
+	/**
+	 * The probe document of the next {@code luceneFreshness} invocation, a single document replaced each time.
+	 */
+	@State(Scope.Thread)
+	public static class LuceneProbe {
+		private NativeIndex index;
+		private Document document;
+		private TermQuery query;
+
+		@Setup(Level.Invocation)
+		public void prepare(NativeIndex index) {
+			this.index = index;
+			String isbn = "fresh-" + index.benchmark.newBookCount.incrementAndGet();
+			document = new Document();
+			document.add(
+					new StringField( NativeIndex.PROBE_TERM.field(), NativeIndex.PROBE_TERM.text(), Field.Store.NO )
+			);
+			document.add( new StringField( "isbn", isbn, Field.Store.NO ) );
+			query = new TermQuery( new Term( "isbn", isbn ) );
+		}
+	}
+
+	@Setup
+	public void setUp() throws Exception {
+		setUpIndexes();
+		Session session = sessionFactory.openSession();
+		try {
+			Object[] idRange = (Object[]) session.createQuery( "select min(b.id), max(b.id) from Book b" )
+					.uniqueResult();
+			minBookId = (Integer) idRange[0];
+			maxBookId = (Integer) idRange[1];
+		}
+		finally {
+			session.close();
+		}
+	}
+
+	@Benchmark
+	@Group("hsearch")
+	@GroupThreads(1)
+	public void hsearchWrite(HSearchIndex index, Writer writer) {
+		FullTextSession fullTextSession = Search.getFullTextSession( index.sessionFactory.openSession() );
+		try {
+			fullTextSession.setFlushMode( FlushMode.MANUAL );
+			Transaction transaction = fullTextSession.beginTransaction();
+			Book book = loadRandomBook( fullTextSession, writer.random );
+			if ( writer.nextIsUpdate() ) {
+				book.setTitle( book.getTitle() + " revised" );
+			}
+			else {
+				book = copyOf( book, "mixed-" + newBookCount.incrementAndGet() );
+				fullTextSession.save( book );
+			}
+			fullTextSession.index( book );
+			fullTextSession.flushToIndexes();
+			transaction.rollback();
+		}
+		finally {
+			fullTextSession.close();
+		}
+	}
+
+	@Benchmark
+	@Group("hsearch")
+	@GroupThreads(2)
+	public void hsearchFaceting(HSearchIndex index) {
+		FullTextSession fullTextSession = Search.getFullTextSession( index.sessionFactory.openSession() );
+		try {
+			List<Facet> facets = hsearchFaceting( fullTextSession, new MatchAllDocsQuery() );
+			assertEquals( "Wrong facet count", MAX_FACET_COUNT, facets.size() );
+		}
+		finally {
+			fullTextSession.close();
+		}
+	}
+
+	@Benchmark
+	@Group("hsearch")
+	@GroupThreads(1)
+	public void hsearchFreshness(HSearchProbe probe) {
+		long start = System.nanoTime();
+		probe.fullTextSession.index( probe.book );
+		probe.fullTextSession.flushToIndexes();
+		while ( probe.fullTextSession.createFullTextQuery( probe.query, Book.class ).getResultSize() == 0 ) {
+			awaitNextPoll( start );
+		}
+	}
+
+	@Benchmark
+	@Group("lucene")
+	@GroupThreads(1)
+	public void luceneWrite(NativeIndex index, Writer writer) throws Exception {
+		Book book;
+		Session session = sessionFactory.openSession();
+		try {
+			book = loadRandomBook( session, writer.random );
+		}
+		finally {
+			session.close();
+		}
+
+		if ( writer.nextIsUpdate() ) {
+			book.setTitle( book.getTitle() + " revised" );
+			index.writer.updateDocument(
+					new Term( "isbn", book.getIsbn() ),
+					NativeLuceneIndexer.createDocument( book, index.facetsConfig )
+			);
+		}
+		else {
+			book = copyOf( book, "mixed-" + newBookCount.incrementAndGet() );
+			index.writer.addDocument( NativeLuceneIndexer.createDocument( book, index.facetsConfig ) );
+		}
+	}
+
+	@Benchmark
+	@Group("lucene")
+	@GroupThreads(2)
+	public void luceneFaceting(NativeIndex index) throws Exception {
+		IndexSearcher searcher = index.searcherManager.acquire();
+		try {
+			FacetResult topFacetResult = luceneFaceting(
+					searcher,
+					index.stateCache.getState( searcher.getIndexReader() ),
+					new MatchAllDocsQuery()
+			);
+			assertEquals( "Wrong facet count", MAX_FACET_COUNT, topFacetResult.labelValues.length );
+		}
+		finally {
+			index.searcherManager.release( searcher );
+		}
+	}
+
+	@Benchmark
+	@Group("lucene")
+	@GroupThreads(1)
+	public void luceneFreshness(LuceneProbe probe) throws Exception {
+		NativeIndex index = probe.index;
+		long start = System.nanoTime();
+		index.writer.updateDocument( NativeIndex.PROBE_TERM, probe.document );
+		while ( true ) {
+			IndexSearcher searcher = index.searcherManager.acquire();
+			try {
+				if ( searcher.search( probe.query, 1 ).totalHits > 0 ) {
+					return;
+				}
+			}
+			finally {
+				index.searcherManager.release( searcher );
+			}
+			awaitNextPoll( start );
+		}
+	}
+
+	private File getMixedWorkloadDir() {
+		return new File( MIXED_WORKLOAD_DIR, getDataSetName() );
+	}
+
+	private Book loadRandomBook(Session session, Random random) {
+		while ( true ) {
+			Book book = (Book) session.get( Book.class, minBookId + random.nextInt( maxBookId - minBookId + 1 ) );
+			// the ids of the isbndb data set are not contiguous
+			if ( book != null ) {
+				return book;
+			}
+		}
+	}
+
+	private static Book copyOf(Book book, String isbn) {
+		Book copy = new Book();
+		copy.setIsbn( isbn );
+		copy.setTitle( book.getTitle() );
+		copy.setPublisher( book.getPublisher() );
+		copy.setAuthors( new HashSet<Author>( book.getAuthors() ) );
+		return copy;
+	}
+
+	private static void awaitNextPoll(long start) {
+		if ( System.nanoTime() - start > MAX_FRESHNESS_LAG_NANOS ) {
+			throw new IllegalStateException( "The indexed book did not become visible" );
+		}
+		LockSupport.parkNanos( POLL_INTERVAL_NANOS );
+	}
+
+	// for testing in the IDE
+	public static void main(String[] args) throws Exception {
+		Options opt = new OptionsBuilder()
+				.include( ".*" + MixedReadWritePerformance.class.getSimpleName() + ".*" )
+				.build();
+		new Runner( opt ).run();
+	}
+}
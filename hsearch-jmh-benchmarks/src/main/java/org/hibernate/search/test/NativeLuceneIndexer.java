@@ -0,0 +1,311 @@
+package org.hibernate.search.test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.lucene.analysis.standard.StandardAnalyzer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.document.TextField;
+import org.apache.lucene.facet.FacetField;
+import org.apache.lucene.facet.FacetsConfig;
+import org.apache.lucene.facet.sortedset.SortedSetDocValuesFacetField;
+import org.apache.lucene.facet.taxonomy.TaxonomyWriter;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.util.Version;
+
+import org.hibernate.CacheMode;
+import org.hibernate.FlushMode;
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.Transaction;
+
+/**
+ * Bulk loads all books of the database into a native Lucene index.
+ * <p>
+ * A reader thread streams the books and their authors from a single scrolled query into a bounded queue. A
+ * configurable number of worker threads take the books from the queue, build the documents using a shared
+ * {@code FacetsConfig} and add them to the shared {@code IndexWriter}. The index is only committed every
+ * {@code commitInterval} documents and once at the end.
+ * <p>
+ * The facets are indexed as {@code SortedSetDocValuesFacetField}s, or as taxonomy {@code FacetField}s if a
+ * {@code TaxonomyWriter} is given.
+ * <p>
+ * The books can also be split into several shards, each with its own {@code IndexWriter}, by the hash of their
+ * ISBN.
+ */
+public class NativeLuceneIndexer {
+	private static final int FETCH_SIZE = 100;
+	private static final int QUEUE_CAPACITY_PER_WORKER = 1000;
+	private static final Book END_OF_DATA = new Book();
+
+	private final SessionFactory sessionFactory;
+	private final int numberOfWorkers;
+	private final int commitInterval;
+	private final FacetsConfig facetsConfig = createFacetsConfig();
+
+	/**
+	 * @param sessionFactory the session factory to read the books from
+	 * @param numberOfWorkers the number of threads building and adding the documents
+	 * @param commitInterval the number of documents after which the index gets committed, 0 to only commit at the end
+	 */
+	public NativeLuceneIndexer(SessionFactory sessionFactory, int numberOfWorkers, int commitInterval) {
+		if ( numberOfWorkers < 1 ) {
+			throw new IllegalArgumentException( "At least one worker is required: " + numberOfWorkers );
+		}
+		this.sessionFactory = sessionFactory;
+		this.numberOfWorkers = numberOfWorkers;
+		this.commitInterval = commitInterval;
+	}
+
+	/**
+	 * Indexes all books using the given writer. The writer is committed, but not closed.
+	 *
+	 * @param writer the index writer to add the documents to
+	 *
+	 * @return the number of indexed documents
+	 *
+	 * @throws Exception in case reading the books or indexing them fails
+	 */
+	public long index(IndexWriter writer) throws Exception {
+		return index( writer, null );
+	}
+
+	/**
+	 * Indexes all books using the given writers. The writers are committed, but not closed.
+	 *
+	 * @param writer the index writer to add the documents to
+	 * @param taxonomyWriter the writer of the taxonomy the facets are added to, {@code null} to index the facets as
+	 * sorted set doc values
+	 *
+	 * @return the number of indexed documents
+	 *
+	 * @throws Exception in case reading the books or indexing them fails
+	 */
+	public long index(IndexWriter writer, TaxonomyWriter taxonomyWriter) throws Exception {
+		return index( new IndexWriter[] { writer }, taxonomyWriter );
+	}
+
+	/**
+	 * Indexes all books, split into shards by the hash of their ISBN. The writers are committed, but not closed.
+	 *
+	 * @param shards the index writers of the shards
+	 *
+	 * @return the number of indexed documents
+	 *
+	 * @throws Exception in case reading the books or indexing them fails
+	 */
+	public long indexShards(IndexWriter[] shards) throws Exception {
+		return index( shards, null );
+	}
+
+	private long index(IndexWriter[] writers, TaxonomyWriter taxonomyWriter) throws Exception {
+		BlockingQueue<Book> queue = new ArrayBlockingQueue<Book>( numberOfWorkers * QUEUE_CAPACITY_PER_WORKER );
+		AtomicLong documentCount = new AtomicLong();
+
+		ExecutorService executor = Executors.newFixedThreadPool( numberOfWorkers + 1 );
+		CompletionService<Long> completionService = new ExecutorCompletionService<Long>( executor );
+		List<Future<Long>> workers = new ArrayList<Future<Long>>( numberOfWorkers );
+		try {
+			completionService.submit( new Reader( queue ) );
+			for ( int i = 0; i < numberOfWorkers; i++ ) {
+				workers.add( completionService.submit( new Worker( queue, writers, taxonomyWriter, documentCount ) ) );
+			}
+
+			// fails fast, as soon as any of the tasks fails
+			for ( int i = 0; i < numberOfWorkers + 1; i++ ) {
+				completionService.take().get();
+			}
+		}
+		finally {
+			executor.shutdownNow();
+		}
+
+		commit( writers, taxonomyWriter );
+
+		long indexed = 0;
+		for ( Future<Long> worker : workers ) {
+			indexed += worker.get();
+		}
+		return indexed;
+	}
+
+	public static IndexWriterConfig createIndexWriterConfig() {
+		return new IndexWriterConfig( Version.LUCENE_4_10_3, new StandardAnalyzer() );
+	}
+
+	public static FacetsConfig createFacetsConfig() {
+		FacetsConfig config = new FacetsConfig();
+		config.setMultiValued( "authors.name", true );
+		config.setMultiValued( "authors.name_untokenized", true );
+		return config;
+	}
+
+	public static Document createDocument(Book book, FacetsConfig config) throws IOException {
+		return createDocument( book, config, null );
+	}
+
+	/**
+	 * @param book the book to index
+	 * @param config the facets configuration
+	 * @param taxonomyWriter the writer of the taxonomy the facets are added to, {@code null} to index the facets as
+	 * sorted set doc values
+	 *
+	 * @return the document for the given book
+	 *
+	 * @throws IOException in case the facets cannot be added to the taxonomy
+	 */
+	public static Document createDocument(Book book, FacetsConfig config, TaxonomyWriter taxonomyWriter)
+			throws IOException {
+		// create the Document
+		Document document = new Document();
+
+		// add the standard fields
+		document.add( new TextField( "title", book.getTitle(), Field.Store.NO ) );
+		document.add( new StringField( "isbn", book.getIsbn(), Field.Store.NO ) );
+		document.add( new StringField( "publisher", book.getPublisher(), Field.Store.NO ) );
+		document.add( createFacetField( "publisher", book.getPublisher(), taxonomyWriter ) );
+
+		// add the dynamic facet fields
+		for ( Author author : book.getAuthors() ) {
+			String name = author.getName();
+			document.add( new TextField( "authors.name", name, Field.Store.NO ) );
+			document.add( createFacetField( "authors.name_untokenized", name, taxonomyWriter ) );
+		}
+		return taxonomyWriter == null ? config.build( document ) : config.build( taxonomyWriter, document );
+	}
+
+	private static Field createFacetField(String dimension, String value, TaxonomyWriter taxonomyWriter) {
+		if ( taxonomyWriter == null ) {
+			return new SortedSetDocValuesFacetField( dimension, value );
+		}
+		else {
+			return new FacetField( dimension, value );
+		}
+	}
+
+	/**
+	 * Commits the taxonomy first, so that the committed index never refers to categories missing in the taxonomy.
+	 */
+	private static void commit(IndexWriter[] writers, TaxonomyWriter taxonomyWriter) throws IOException {
+		if ( taxonomyWriter != null ) {
+			taxonomyWriter.commit();
+		}
+		for ( IndexWriter writer : writers ) {
+			writer.commit();
+		}
+	}
+
+	private static int shardOf(Book book, int shards) {
+		return ( book.getIsbn().hashCode() & Integer.MAX_VALUE ) % shards;
+	}
+
+	private class Reader implements Callable<Long> {
+		private final BlockingQueue<Book> queue;
+
+		private Reader(BlockingQueue<Book> queue) {
+			this.queue = queue;
+		}
+
+		@Override
+		public Long call() throws Exception {
+			long read = 0;
+			Session session = sessionFactory.openSession();
+			try {
+				session.setFlushMode( FlushMode.MANUAL );
+				session.setCacheMode( CacheMode.IGNORE );
+				Transaction transaction = session.beginTransaction();
+				// a single query, ordered by book, instead of one additional select per book for its authors
+				ScrollableResults results = session.createQuery(
+						"select b.id, b.title, b.isbn, b.publisher, a.name " +
+								"from Book b left join b.authors a order by b.id"
+				)
+						.setFetchSize( FETCH_SIZE )
+						.setReadOnly( true )
+						.scroll( ScrollMode.FORWARD_ONLY );
+				Integer currentId = null;
+				Book book = null;
+				while ( results.next() ) {
+					Integer id = results.getInteger( 0 );
+					if ( !id.equals( currentId ) ) {
+						if ( book != null ) {
+							queue.put( book );
+							read++;
+						}
+						currentId = id;
+						book = new Book();
+						book.setTitle( results.getString( 1 ) );
+						book.setIsbn( results.getString( 2 ) );
+						book.setPublisher( results.getString( 3 ) );
+					}
+					String authorName = results.getString( 4 );
+					if ( authorName != null ) {
+						Author author = new Author();
+						author.setName( authorName );
+						book.getAuthors().add( author );
+					}
+				}
+				if ( book != null ) {
+					queue.put( book );
+					read++;
+				}
+				results.close();
+				transaction.commit();
+			}
+			finally {
+				session.close();
+			}
+
+			for ( int i = 0; i < numberOfWorkers; i++ ) {
+				queue.put( END_OF_DATA );
+			}
+			return read;
+		}
+	}
+
+	private class Worker implements Callable<Long> {
+		private final BlockingQueue<Book> queue;
+		private final IndexWriter[] writers;
+		private final TaxonomyWriter taxonomyWriter;
+		private final AtomicLong documentCount;
+
+		private Worker(BlockingQueue<Book> queue,
+				IndexWriter[] writers,
+				TaxonomyWriter taxonomyWriter,
+				AtomicLong documentCount) {
+			this.queue = queue;
+			this.writers = writers;
+			this.taxonomyWriter = taxonomyWriter;
+			this.documentCount = documentCount;
+		}
+
+		@Override
+		public Long call() throws Exception {
+			long indexed = 0;
+			Book book;
+			while ( ( book = queue.take() ) != END_OF_DATA ) {
+				IndexWriter writer = writers.length == 1 ? writers[0] : writers[shardOf( book, writers.length )];
+				writer.addDocument( createDocument( book, facetsConfig, taxonomyWriter ) );
+				indexed++;
+				if ( commitInterval > 0 && documentCount.incrementAndGet() % commitInterval == 0 ) {
+					commit( writers, taxonomyWriter );
+				}
+			}
+			return indexed;
+		}
+	}
+}
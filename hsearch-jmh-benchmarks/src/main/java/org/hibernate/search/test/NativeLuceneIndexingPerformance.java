@@ -0,0 +1,128 @@
+package org.hibernate.search.test;
+
+import java.io.File;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.lucene.facet.taxonomy.directory.DirectoryTaxonomyWriter;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.FSDirectory;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import org.hibernate.SessionFactory;
+
+/**
+ * Measures the throughput of building the native Lucene index with {@link NativeLuceneIndexer}. Each invocation
+ * re-creates the whole index, the {@code documents} counter reports the indexed documents per second. With
+ * {@code facets=taxonomy} the facets are added to a taxonomy index instead of being indexed as sorted set doc values.
+ */
+@BenchmarkMode(Mode.Throughput)
+@Warmup(iterations = 1)
+@Measurement(iterations = 2)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Benchmark)
+public class NativeLuceneIndexingPerformance extends AbstractBookBenchmark {
+	private static final String BULK_INDEX_DIR = "target/native-lucene-bulk";
+	private static final String BULK_TAXONOMY_DIR = "target/native-lucene-bulk-taxonomy";
+
+	@Param({ "1", "2", "4", "8" })
+	public int workers;
+
+	@Param({ "16", "64", "256" })
+	public double ramBufferSizeMB;
+
+	/**
+	 * The number of documents after which the index gets committed, 0 to only commit once at the end.
+	 */
+	@Param({ "0" })
+	public int commitInterval;
+
+	/**
+	 * Either {@code sortedset} or {@code taxonomy}.
+	 */
+	@Param({ "sortedset", "taxonomy" })
+	public String facets;
+
+	private SessionFactory sessionFactory;
+	private Directory directory;
+	private Directory taxonomyDirectory;
+
+	@AuxCounters
+	@State(Scope.Thread)
+	public static class IndexingCounters {
+		public long documents;
+
+		@Setup(Level.Iteration)
+		public void reset() {
+			documents = 0;
+		}
+	}
+
+	@Setup
+	public void setUp() throws Exception {
+		sessionFactory = openDataSet();
+		directory = FSDirectory.open( new File( BULK_INDEX_DIR, getDataSetName() ) );
+		if ( "taxonomy".equals( facets ) ) {
+			taxonomyDirectory = FSDirectory.open( new File( BULK_TAXONOMY_DIR, getDataSetName() ) );
+		}
+		else if ( !"sortedset".equals( facets ) ) {
+			throw new IllegalArgumentException( "Unknown facets: " + facets );
+		}
+	}
+
+	@TearDown
+	public void tearDown() throws Exception {
+		directory.close();
+		if ( taxonomyDirectory != null ) {
+			taxonomyDirectory.close();
+		}
+		sessionFactory.close();
+	}
+
+	@Benchmark
+	public void bulkIndexing(IndexingCounters counters) throws Exception {
+		IndexWriterConfig iwc = NativeLuceneIndexer.createIndexWriterConfig();
+		iwc.setOpenMode( IndexWriterConfig.OpenMode.CREATE );
+		iwc.setRAMBufferSizeMB( ramBufferSizeMB );
+		iwc.setMaxThreadStates( Math.max( workers, IndexWriterConfig.DEFAULT_MAX_THREAD_STATES ) );
+
+		IndexWriter writer = new IndexWriter( directory, iwc );
+		DirectoryTaxonomyWriter taxonomyWriter = taxonomyDirectory == null ?
+				null :
+				new DirectoryTaxonomyWriter( taxonomyDirectory, IndexWriterConfig.OpenMode.CREATE );
+		try {
+			counters.documents += new NativeLuceneIndexer( sessionFactory, workers, commitInterval )
+					.index( writer, taxonomyWriter );
+		}
+		finally {
+			if ( taxonomyWriter != null ) {
+				taxonomyWriter.close();
+			}
+			writer.close();
+		}
+	}
+
+	// for testing in the IDE
+	public static void main(String[] args) throws Exception {
+		Options opt = new OptionsBuilder()
+				.include( ".*" + NativeLuceneIndexingPerformance.class.getSimpleName() + ".*" )
+				.build();
+		new Runner( opt ).run();
+	}
+}
@@ -0,0 +1,211 @@
+package org.hibernate.search.test;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+import org.apache.lucene.facet.FacetsConfig;
+import org.apache.lucene.facet.sortedset.SortedSetDocValuesReaderState;
+import org.apache.lucene.index.AtomicReaderContext;
+import org.apache.lucene.index.MultiDocValues;
+import org.apache.lucene.index.SortedSetDocValues;
+import org.apache.lucene.search.Collector;
+import org.apache.lucene.search.Scorer;
+import org.apache.lucene.util.LongValues;
+
+/**
+ * Counts the facet values of a single {@code SortedSetDocValuesFacetField} dimension without allocating per query.
+ * <p>
+ * The global ordinals of the dimension are counted into an {@code int[]} which is reused across queries, the top
+ * values are then selected with a bounded min-heap kept in two more reused arrays. Only the labels of the selected
+ * values are resolved, on request. Instances are not thread-safe, each thread needs its own collector.
+ */
+public class OrdinalFacetCollector extends Collector {
+	private final String dimension;
+	private final int[] topOrdinals;
+	private final int[] topCounts;
+	private int topSize;
+
+	private int[] counts = new int[0];
+	private SortedSetDocValuesReaderState state;
+	private MultiDocValues.OrdinalMap ordinalMap;
+	private int startOrdinal;
+	private int endOrdinal;
+
+	private SortedSetDocValues segmentValues;
+	private LongValues segmentToGlobalOrdinals;
+
+	/**
+	 * @param dimension the facet dimension to count
+	 * @param topK the maximum number of values to select
+	 */
+	public OrdinalFacetCollector(String dimension, int topK) {
+		this.dimension = dimension;
+		this.topOrdinals = new int[topK];
+		this.topCounts = new int[topK];
+	}
+
+	/**
+	 * Prepares the collector for a new query, clearing the counts of the previous one.
+	 *
+	 * @param readerState the state of the reader the query will be executed against
+	 *
+	 * @throws IOException in case the doc values cannot be accessed
+	 */
+	public void reset(SortedSetDocValuesReaderState readerState) throws IOException {
+		if ( readerState != state ) {
+			SortedSetDocValuesReaderState.OrdRange ordRange = readerState.getOrdRange( dimension );
+			if ( ordRange == null ) {
+				throw new IllegalArgumentException( "Dimension '" + dimension + "' was not indexed" );
+			}
+			SortedSetDocValues docValues = readerState.getDocValues();
+			ordinalMap = docValues instanceof MultiDocValues.MultiSortedSetDocValues ?
+					( (MultiDocValues.MultiSortedSetDocValues) docValues ).mapping :
+					null;
+			startOrdinal = ordRange.start;
+			endOrdinal = ordRange.end;
+			if ( counts.length < readerState.getSize() ) {
+				counts = new int[readerState.getSize()];
+			}
+			state = readerState;
+		}
+		Arrays.fill( counts, startOrdinal, endOrdinal + 1, 0 );
+		topSize = 0;
+	}
+
+	@Override
+	public void setScorer(Scorer scorer) {
+		// scores are not needed
+	}
+
+	@Override
+	public void setNextReader(AtomicReaderContext context) throws IOException {
+		segmentValues = context.reader().getSortedSetDocValues( state.getField() );
+		segmentToGlobalOrdinals = ordinalMap == null ? null : ordinalMap.getGlobalOrds( context.ord );
+	}
+
+	@Override
+	public void collect(int doc) {
+		if ( segmentValues == null ) {
+			return;
+		}
+		segmentValues.setDocument( doc );
+		long ordinal;
+		while ( ( ordinal = segmentValues.nextOrd() ) != SortedSetDocValues.NO_MORE_ORDS ) {
+			int globalOrdinal = segmentToGlobalOrdinals == null ?
+					(int) ordinal :
+					(int) segmentToGlobalOrdinals.get( ordinal );
+			if ( globalOrdinal >= startOrdinal && globalOrdinal <= endOrdinal ) {
+				counts[globalOrdinal]++;
+			}
+		}
+	}
+
+	@Override
+	public boolean acceptsDocsOutOfOrder() {
+		return true;
+	}
+
+	/**
+	 * Selects the values with the highest counts, ties are broken by ordinal, that is by label. Needs to be called
+	 * after the search and before accessing the results.
+	 *
+	 * @return the number of selected values
+	 */
+	public int selectTopValues() {
+		topSize = 0;
+		for ( int ordinal = startOrdinal; ordinal <= endOrdinal; ordinal++ ) {
+			int count = counts[ordinal];
+			if ( count == 0 ) {
+				continue;
+			}
+			if ( topSize < topOrdinals.length ) {
+				topOrdinals[topSize] = ordinal;
+				topCounts[topSize] = count;
+				topSize++;
+				siftUp( topSize - 1 );
+			}
+			else if ( isBefore( ordinal, count, topOrdinals[0], topCounts[0] ) ) {
+				topOrdinals[0] = ordinal;
+				topCounts[0] = count;
+				siftDown( 0, topSize );
+			}
+		}
+
+		// heap sort, leaves the values in descending order
+		for ( int end = topSize - 1; end > 0; end-- ) {
+			swap( 0, end );
+			siftDown( 0, end );
+		}
+		return topSize;
+	}
+
+	public int selectedValues() {
+		return topSize;
+	}
+
+	public int getTopCount(int index) {
+		return topCounts[index];
+	}
+
+	public int getTopOrdinal(int index) {
+		return topOrdinals[index];
+	}
+
+	/**
+	 * @param index the index of the selected value
+	 *
+	 * @return the label of the selected value
+	 *
+	 * @throws IOException in case the doc values cannot be accessed
+	 */
+	public String getTopLabel(int index) throws IOException {
+		String path = state.getDocValues().lookupOrd( topOrdinals[index] ).utf8ToString();
+		return FacetsConfig.stringToPath( path )[1];
+	}
+
+	/**
+	 * Whether the first value ranks before the second one, i.e. has a higher count or the same count and a lower
+	 * ordinal. The root of the heap is the value ranking last.
+	 */
+	private static boolean isBefore(int ordinal, int count, int otherOrdinal, int otherCount) {
+		return count > otherCount || ( count == otherCount && ordinal < otherOrdinal );
+	}
+
+	private void siftUp(int index) {
+		while ( index > 0 ) {
+			int parent = ( index - 1 ) / 2;
+			if ( !isBefore( topOrdinals[parent], topCounts[parent], topOrdinals[index], topCounts[index] ) ) {
+				return;
+			}
+			swap( index, parent );
+			index = parent;
+		}
+	}
+
+	private void siftDown(int index, int size) {
+		while ( true ) {
+			int child = 2 * index + 1;
+			if ( child >= size ) {
+				return;
+			}
+			if ( child + 1 < size
+					&& isBefore( topOrdinals[child], topCounts[child], topOrdinals[child + 1], topCounts[child + 1] ) ) {
+				child++;
+			}
+			if ( !isBefore( topOrdinals[index], topCounts[index], topOrdinals[child], topCounts[child] ) ) {
+				return;
+			}
+			swap( index, child );
+			index = child;
+		}
+	}
+
+	private void swap(int i, int j) {
+		int ordinal = topOrdinals[i];
+		int count = topCounts[i];
+		topOrdinals[i] = topOrdinals[j];
+		topCounts[i] = topCounts[j];
+		topOrdinals[j] = ordinal;
+		topCounts[j] = count;
+	}
+}
@@ -0,0 +1,180 @@
+package org.hibernate.search.test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import org.apache.lucene.facet.FacetResult;
+import org.apache.lucene.facet.FacetsConfig;
+import org.apache.lucene.facet.LabelAndValue;
+import org.apache.lucene.facet.TopOrdAndIntQueue;
+import org.apache.lucene.facet.sortedset.SortedSetDocValuesReaderState;
+import org.apache.lucene.index.AtomicReaderContext;
+import org.apache.lucene.index.MultiDocValues;
+import org.apache.lucene.index.SortedSetDocValues;
+import org.apache.lucene.search.DocIdSetIterator;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.Scorer;
+import org.apache.lucene.search.Weight;
+import org.apache.lucene.util.LongValues;
+
+/**
+ * Counts the values of a {@code SortedSetDocValuesFacetField} dimension for the hits of a query, one task per
+ * segment. Each task counts the segment ordinals of its segment and adds the counts to the shared counts of the
+ * global ordinals, the top values are selected once all segments are done.
+ * <p>
+ * The per-segment counts are merged completely rather than as per-segment top lists, as the latter would miss
+ * values which are not among the top values of every segment.
+ */
+public class ParallelFacetCounter {
+	private final IndexSearcher searcher;
+	private final ExecutorService executor;
+	private final SortedSetDocValuesReaderState state;
+
+	/**
+	 * @param searcher the searcher to execute the queries with
+	 * @param executor the executor running the per-segment tasks
+	 * @param state the state of the searcher's reader
+	 */
+	public ParallelFacetCounter(IndexSearcher searcher, ExecutorService executor, SortedSetDocValuesReaderState state) {
+		this.searcher = searcher;
+		this.executor = executor;
+		this.state = state;
+	}
+
+	/**
+	 * @param query the query to facet the hits of
+	 * @param topN the maximum number of values to return
+	 * @param dimension the dimension to count
+	 *
+	 * @return the top values of the given dimension, {@code null} if there are none
+	 *
+	 * @throws IOException in case the index cannot be read
+	 */
+	public FacetResult getTopChildren(Query query, int topN, String dimension) throws IOException {
+		SortedSetDocValuesReaderState.OrdRange ordRange = state.getOrdRange( dimension );
+		if ( ordRange == null ) {
+			throw new IllegalArgumentException( "Dimension '" + dimension + "' was not indexed" );
+		}
+		SortedSetDocValues docValues = state.getDocValues();
+		MultiDocValues.OrdinalMap ordinalMap = docValues instanceof MultiDocValues.MultiSortedSetDocValues ?
+				( (MultiDocValues.MultiSortedSetDocValues) docValues ).mapping :
+				null;
+
+		Weight weight = searcher.createNormalizedWeight( query );
+		AtomicIntegerArray counts = new AtomicIntegerArray( state.getSize() );
+		List<AtomicReaderContext> leaves = searcher.getIndexReader().leaves();
+		List<Future<Void>> segmentCounts = new ArrayList<Future<Void>>( leaves.size() );
+		for ( AtomicReaderContext leaf : leaves ) {
+			LongValues segmentToGlobalOrdinals = ordinalMap == null ? null : ordinalMap.getGlobalOrds( leaf.ord );
+			segmentCounts.add(
+					executor.submit( new SegmentCount( weight, leaf, segmentToGlobalOrdinals, ordRange, counts ) )
+			);
+		}
+		try {
+			for ( Future<Void> segmentCount : segmentCounts ) {
+				segmentCount.get();
+			}
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException( "Interrupted while counting the facets", e );
+		}
+		catch (ExecutionException e) {
+			throw new IOException( "Unable to count the facets", e.getCause() );
+		}
+
+		return createResult( dimension, ordRange, counts, topN, docValues );
+	}
+
+	private FacetResult createResult(String dimension,
+			SortedSetDocValuesReaderState.OrdRange ordRange,
+			AtomicIntegerArray counts,
+			int topN,
+			SortedSetDocValues docValues) {
+		TopOrdAndIntQueue queue = new TopOrdAndIntQueue( topN );
+		TopOrdAndIntQueue.OrdAndValue reuse = null;
+		int dimensionCount = 0;
+		int childCount = 0;
+		for ( int ord = ordRange.start; ord <= ordRange.end; ord++ ) {
+			int count = counts.get( ord );
+			if ( count > 0 ) {
+				dimensionCount += count;
+				childCount++;
+				if ( reuse == null ) {
+					reuse = new TopOrdAndIntQueue.OrdAndValue();
+				}
+				reuse.ord = ord;
+				reuse.value = count;
+				reuse = queue.insertWithOverflow( reuse );
+			}
+		}
+		if ( dimensionCount == 0 ) {
+			return null;
+		}
+
+		LabelAndValue[] labelValues = new LabelAndValue[queue.size()];
+		for ( int i = labelValues.length - 1; i >= 0; i-- ) {
+			TopOrdAndIntQueue.OrdAndValue ordAndValue = queue.pop();
+			String[] path = FacetsConfig.stringToPath( docValues.lookupOrd( ordAndValue.ord ).utf8ToString() );
+			labelValues[i] = new LabelAndValue( path[1], ordAndValue.value );
+		}
+		return new FacetResult( dimension, new String[0], dimensionCount, labelValues, childCount );
+	}
+
+	private class SegmentCount implements Callable<Void> {
+		private final Weight weight;
+		private final AtomicReaderContext leaf;
+		private final LongValues segmentToGlobalOrdinals;
+		private final SortedSetDocValuesReaderState.OrdRange ordRange;
+		private final AtomicIntegerArray counts;
+
+		private SegmentCount(Weight weight,
+				AtomicReaderContext leaf,
+				LongValues segmentToGlobalOrdinals,
+				SortedSetDocValuesReaderState.OrdRange ordRange,
+				AtomicIntegerArray counts) {
+			this.weight = weight;
+			this.leaf = leaf;
+			this.segmentToGlobalOrdinals = segmentToGlobalOrdinals;
+			this.ordRange = ordRange;
+			this.counts = counts;
+		}
+
+		@Override
+		public Void call() throws IOException {
+			SortedSetDocValues segmentValues = leaf.reader().getSortedSetDocValues( state.getField() );
+			Scorer scorer = weight.scorer( leaf, leaf.reader().getLiveDocs() );
+			if ( segmentValues == null || scorer == null ) {
+				return null;
+			}
+
+			// counted by segment ordinal first, so that the shared counts are only updated once per value
+			int[] segmentCounts = new int[(int) segmentValues.getValueCount()];
+			int doc;
+			while ( ( doc = scorer.nextDoc() ) != DocIdSetIterator.NO_MORE_DOCS ) {
+				segmentValues.setDocument( doc );
+				long ord;
+				while ( ( ord = segmentValues.nextOrd() ) != SortedSetDocValues.NO_MORE_ORDS ) {
+					segmentCounts[(int) ord]++;
+				}
+			}
+
+			for ( int ord = 0; ord < segmentCounts.length; ord++ ) {
+				if ( segmentCounts[ord] > 0 ) {
+					int globalOrd = segmentToGlobalOrdinals == null ? ord : (int) segmentToGlobalOrdinals.get( ord );
+					if ( globalOrd >= ordRange.start && globalOrd <= ordRange.end ) {
+						counts.addAndGet( globalOrd, segmentCounts[ord] );
+					}
+				}
+			}
+			return null;
+		}
+	}
+}
@@ -0,0 +1,111 @@
+package org.hibernate.search.test;
+
+import java.io.IOException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.lucene.facet.FacetResult;
+import org.apache.lucene.facet.sortedset.DefaultSortedSetDocValuesReaderState;
+import org.apache.lucene.facet.sortedset.SortedSetDocValuesReaderState;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.MatchAllDocsQuery;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.FSDirectory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Compares sequential faceting over all books with counting the facets of each segment in parallel via
+ * {@link ParallelFacetCounter}, for different thread pool sizes and numbers of segments. The reader state is
+ * created once, so only the collection and counting are measured.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@Warmup(iterations = 1)
+@Measurement(iterations = 2)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+public class ParallelFacetingPerformance extends AbstractFacetingBenchmark {
+	@Param({ "1", "8", "32" })
+	public int segments;
+
+	private Directory directory;
+	private DirectoryReader reader;
+	private IndexSearcher searcher;
+	private SortedSetDocValuesReaderState docValuesReaderState;
+
+	@State(Scope.Benchmark)
+	public static class ThreadPool {
+		@Param({ "1", "2", "4", "8", "16", "32" })
+		public int poolSize;
+
+		private ExecutorService executor;
+		private ParallelFacetCounter facetCounter;
+
+		@Setup
+		public void setUp(ParallelFacetingPerformance benchmark) {
+			executor = Executors.newFixedThreadPool( poolSize );
+			IndexSearcher searcher = new IndexSearcher( benchmark.reader, executor );
+			facetCounter = new ParallelFacetCounter( searcher, executor, benchmark.docValuesReaderState );
+		}
+
+		@TearDown
+		public void tearDown() throws InterruptedException {
+			executor.shutdown();
+			executor.awaitTermination( 1, TimeUnit.MINUTES );
+		}
+	}
+
+	@Setup
+	public void setUp() throws Exception {
+		setUpIndexes();
+		directory = FSDirectory.open( getSegmentedNativeIndexDir( segments ) );
+		reader = DirectoryReader.open( directory );
+		searcher = new IndexSearcher( reader );
+		docValuesReaderState = new DefaultSortedSetDocValuesReaderState( reader );
+		assertEquals( "Wrong number of segments", segments, reader.leaves().size() );
+	}
+
+	@TearDown
+	public void tearDown() throws IOException {
+		reader.close();
+		directory.close();
+	}
+
+	@Benchmark
+	public void sequentialFaceting() throws Exception {
+		FacetResult topFacetResult = luceneFaceting( searcher, docValuesReaderState, new MatchAllDocsQuery() );
+		assertTopAuthor( topFacetResult );
+	}
+
+	@Benchmark
+	public void parallelFaceting(ThreadPool threadPool) throws Exception {
+		FacetResult topFacetResult = threadPool.facetCounter.getTopChildren(
+				new MatchAllDocsQuery(), MAX_FACET_COUNT, AUTHOR_NAME_FIELD
+		);
+		assertTopAuthor( topFacetResult );
+	}
+
+	// for testing in the IDE
+	public static void main(String[] args) throws Exception {
+		Options opt = new OptionsBuilder()
+				.include( ".*" + ParallelFacetingPerformance.class.getSimpleName() + ".*" )
+				.build();
+		new Runner( opt ).run();
+	}
+}
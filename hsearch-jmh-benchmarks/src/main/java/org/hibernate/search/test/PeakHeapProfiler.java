@@ -0,0 +1,63 @@
+package org.hibernate.search.test;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+import org.openjdk.jmh.infra.BenchmarkParams;
+import org.openjdk.jmh.infra.IterationParams;
+import org.openjdk.jmh.profile.InternalProfiler;
+import org.openjdk.jmh.profile.ProfilerResult;
+import org.openjdk.jmh.results.AggregationPolicy;
+import org.openjdk.jmh.results.IterationResult;
+import org.openjdk.jmh.results.Result;
+
+/**
+ * Reports the peak heap usage of each iteration, that is the sum of the peak usages of all heap memory pools.
+ * Enable it with {@code -prof peakheap}.
+ */
+public class PeakHeapProfiler implements InternalProfiler {
+	private static final double BYTES_PER_MB = 1024 * 1024;
+
+	@Override
+	public boolean checkSupport(List<String> msgs) {
+		return true;
+	}
+
+	@Override
+	public String label() {
+		return "peakheap";
+	}
+
+	@Override
+	public String getDescription() {
+		return "Peak heap usage per iteration";
+	}
+
+	@Override
+	public void beforeIteration(BenchmarkParams benchmarkParams, IterationParams iterationParams) {
+		for ( MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans() ) {
+			if ( pool.getType() == MemoryType.HEAP ) {
+				pool.resetPeakUsage();
+			}
+		}
+	}
+
+	@Override
+	public Collection<? extends Result> afterIteration(BenchmarkParams benchmarkParams,
+			IterationParams iterationParams,
+			IterationResult result) {
+		long peak = 0;
+		for ( MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans() ) {
+			if ( pool.getType() == MemoryType.HEAP ) {
+				peak += pool.getPeakUsage().getUsed();
+			}
+		}
+		return Collections.singleton(
+				new ProfilerResult( "·heap.peak", peak / BYTES_PER_MB, "MB", AggregationPolicy.MAX )
+		);
+	}
+}
@@ -0,0 +1,53 @@
+package org.hibernate.search.test;
+
+import org.HdrHistogram.Histogram;
+
+/**
+ * Records the duration of consecutive phases of an operation into one histogram per phase. {@link #start()} marks
+ * the beginning of the operation, each {@link #endOf(int)} the end of the given phase and the beginning of the next
+ * one, so a phase costs a single {@code System.nanoTime()} call.
+ * <p>
+ * Not thread-safe, each thread needs its own instance.
+ */
+public class PhaseTimer {
+	private static final int SIGNIFICANT_DIGITS = 2;
+
+	private final String[] phases;
+	private final Histogram[] histograms;
+	private long lastMark;
+
+	/**
+	 * @param phases the names of the phases, in the order they are run
+	 */
+	public PhaseTimer(String... phases) {
+		this.phases = phases;
+		this.histograms = new Histogram[phases.length];
+		for ( int i = 0; i < phases.length; i++ ) {
+			histograms[i] = new Histogram( SIGNIFICANT_DIGITS );
+		}
+	}
+
+	public void start() {
+		lastMark = System.nanoTime();
+	}
+
+	/**
+	 * @param phase the index of the phase which just ended
+	 */
+	public void endOf(int phase) {
+		long now = System.nanoTime();
+		histograms[phase].recordValue( now - lastMark );
+		lastMark = now;
+	}
+
+	/**
+	 * Adds the durations of each phase to the durations reported by the {@link MetricsProfiler}, which merges them
+	 * with those of the other threads, and resets the histograms.
+	 */
+	public void record() {
+		for ( int i = 0; i < phases.length; i++ ) {
+			MetricsProfiler.durations( "phase." + phases[i], histograms[i] );
+			histograms[i].reset();
+		}
+	}
+}
@@ -0,0 +1,145 @@
+package org.hibernate.search.test;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.lucene.facet.FacetResult;
+import org.apache.lucene.facet.sortedset.DefaultSortedSetDocValuesReaderState;
+import org.apache.lucene.facet.sortedset.SortedSetDocValuesReaderState;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.MatchAllDocsQuery;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.store.Directory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import org.hibernate.search.FullTextSession;
+import org.hibernate.search.Search;
+import org.hibernate.search.query.facet.Facet;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Facets on the books matching a single title term instead of all books. The term is picked from the native index
+ * so that it matches as close as possible to {@code hitRatio} of the books, {@code 1} uses a
+ * {@code MatchAllDocsQuery}. Only terms matching the same books in both indexes are considered.
+ * <p>
+ * The expected top author count is taken from Lucene's faceting during setup and verified for both engines. Only
+ * the count is compared, as the engines break ties between authors differently.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@Warmup(iterations = 1)
+@Measurement(iterations = 2)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+public class QuerySelectivityFacetingPerformance extends AbstractFacetingBenchmark {
+	/**
+	 * The targeted fraction of books matching the query.
+	 */
+	@Param({ "0.0001", "0.01", "0.1", "1" })
+	public double hitRatio;
+
+	private Directory directory;
+	private DirectoryReader reader;
+	private IndexSearcher searcher;
+	private Query query;
+	private int expectedFacetCount;
+	private int expectedTopFacetValueCount;
+
+	@Setup
+	public void setUp() throws Exception {
+		setUpIndexes();
+		directory = openNativeIndexDirectory();
+		reader = DirectoryReader.open( directory );
+		searcher = new IndexSearcher( reader );
+
+		query = createQuery();
+		FacetResult expectedResult = luceneFaceting(
+				searcher, new DefaultSortedSetDocValuesReaderState( reader ), query
+		);
+		// every book has at least one author, so there always is a result
+		expectedFacetCount = expectedResult.labelValues.length;
+		expectedTopFacetValueCount = expectedResult.labelValues[0].value.intValue();
+	}
+
+	@TearDown
+	public void tearDown() throws IOException {
+		reader.close();
+		directory.close();
+	}
+
+	@Benchmark
+	public void hsearchFaceting() {
+		FullTextSession fullTextSession = Search.getFullTextSession( sessionFactory.openSession() );
+		try {
+			List<Facet> facets = hsearchFaceting( fullTextSession, query );
+			assertEquals( "Wrong facet count", expectedFacetCount, facets.size() );
+			assertEquals( "Wrong facet value count", expectedTopFacetValueCount, facets.get( 0 ).getCount() );
+		}
+		finally {
+			fullTextSession.close();
+		}
+	}
+
+	@Benchmark
+	public void luceneFaceting() throws Exception {
+		SortedSetDocValuesReaderState docValuesReaderState = new DefaultSortedSetDocValuesReaderState( reader );
+
+		FacetResult topFacetResult = luceneFaceting( searcher, docValuesReaderState, query );
+		assertEquals( "Wrong facet count", expectedFacetCount, topFacetResult.labelValues.length );
+		assertEquals(
+				"Wrong facet value count",
+				expectedTopFacetValueCount,
+				topFacetResult.labelValues[0].value.intValue()
+		);
+	}
+
+	/**
+	 * Picks the title term whose document frequency is closest to the targeted number of hits.
+	 */
+	private Query createQuery() throws IOException {
+		if ( hitRatio >= 1 ) {
+			return new MatchAllDocsQuery();
+		}
+
+		long targetHits = Math.max( 1, Math.round( reader.numDocs() * hitRatio ) );
+		Term bestTerm = null;
+		int bestDocFreq = 0;
+		for ( Map.Entry<Term, Integer> term : getCommonTitleTerms( reader ).entrySet() ) {
+			int docFreq = term.getValue();
+			if ( bestTerm == null || Math.abs( docFreq - targetHits ) < Math.abs( bestDocFreq - targetHits ) ) {
+				bestTerm = term.getKey();
+				bestDocFreq = docFreq;
+			}
+		}
+		if ( bestTerm == null ) {
+			throw new IllegalStateException( "No title terms common to both indexes" );
+		}
+		return new TermQuery( bestTerm );
+	}
+
+	// for testing in the IDE
+	public static void main(String[] args) throws Exception {
+		Options opt = new OptionsBuilder()
+				.include( ".*" + QuerySelectivityFacetingPerformance.class.getSimpleName() + ".*" )
+				.build();
+		new Runner( opt ).run();
+	}
+}
@@ -0,0 +1,254 @@
+package org.hibernate.search.test;
+
+import java.io.File;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.TermQuery;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.Transaction;
+import org.hibernate.cfg.Configuration;
+import org.hibernate.search.FullTextSession;
+import org.hibernate.search.Search;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Renames authors, which reindexes all their books via {@code @ContainedIn}, and measures the latency of the
+ * transaction commit including the index work. The renamed authors are the {@value #AUTHORS} authors whose number
+ * of books is closest to {@code booksPerAuthor}. {@code renameAuthor} renames one author per transaction,
+ * {@code renameAuthorsInBatch} all of them in one transaction, flushing the index work after each author.
+ * <p>
+ * With the {@code async} worker the commit only enqueues the index work. The session factory is closed after each
+ * iteration, which waits for the queued work, and with {@code -prof metrics} the time it takes is reported per
+ * renamed author, as well as the average number of books of the renamed authors. The index is copied to
+ * {@code target/reindex-amplification} first, the author names are restored in the database at the end of each
+ * trial.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@Warmup(iterations = 1)
+@Measurement(iterations = 2)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+public class ReindexAmplificationPerformance extends AbstractFacetingBenchmark {
+	private static final String REINDEX_AMPLIFICATION_DIR = "target/reindex-amplification";
+	private static final int AUTHORS = 10;
+	private static final String RENAMED_SUFFIX = " (renamed)";
+
+	@Param({ "1", "10", "100", "1000" })
+	public int booksPerAuthor;
+
+	/**
+	 * The value of {@code hibernate.search.default.worker.execution}, either {@code sync} or {@code async}.
+	 */
+	@Param({ "sync", "async" })
+	public String worker;
+
+	private SessionFactory workerSessionFactory;
+	private File indexBase;
+
+	private int[] authorIds;
+	private String[] authorNames;
+	private int[] authorBookCounts;
+	private boolean[] renamed;
+	private int nextAuthor;
+	private int renames;
+
+	@Setup
+	public void setUp() throws Exception {
+		setUpIndexes();
+		selectAuthors();
+
+		indexBase = new File( REINDEX_AMPLIFICATION_DIR, getDataSetName() );
+		deleteDirectory( indexBase.toPath() );
+		copyDirectory( getHSearchIndexDir().toPath(), indexBase.toPath() );
+	}
+
+	@Setup(Level.Iteration)
+	public void openWorkerSessionFactory() {
+		workerSessionFactory = buildWorkerSessionFactory( worker );
+		renames = 0;
+	}
+
+	@TearDown(Level.Iteration)
+	public void closeWorkerSessionFactory() {
+		long start = System.nanoTime();
+		// waits for the queued index work of the async worker
+		workerSessionFactory.close();
+		if ( renames > 0 ) {
+			double drainMillis = (double) ( System.nanoTime() - start ) / TimeUnit.MILLISECONDS.toNanos( 1 );
+			MetricsProfiler.gauge( "indexWork.drain", drainMillis / renames, "ms/op" );
+		}
+	}
+
+	@TearDown
+	public void tearDown() {
+		SessionFactory verifyingSessionFactory = buildWorkerSessionFactory( "sync" );
+		try {
+			assertBooksReindexed( verifyingSessionFactory );
+			restoreAuthorNames( verifyingSessionFactory );
+		}
+		finally {
+			verifyingSessionFactory.close();
+		}
+	}
+
+	@Benchmark
+	public void renameAuthor() {
+		Session session = workerSessionFactory.openSession();
+		try {
+			Transaction transaction = session.beginTransaction();
+			rename( session, nextAuthor() );
+			transaction.commit();
+		}
+		finally {
+			session.close();
+		}
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(AUTHORS)
+	public void renameAuthorsInBatch() {
+		FullTextSession fullTextSession = Search.getFullTextSession( workerSessionFactory.openSession() );
+		try {
+			Transaction transaction = fullTextSession.beginTransaction();
+			for ( int i = 0; i < AUTHORS; i++ ) {
+				rename( fullTextSession, nextAuthor() );
+				fullTextSession.flush();
+				fullTextSession.flushToIndexes();
+				fullTextSession.clear();
+			}
+			transaction.commit();
+		}
+		finally {
+			fullTextSession.close();
+		}
+	}
+
+	private int nextAuthor() {
+		int author = nextAuthor;
+		nextAuthor = ( nextAuthor + 1 ) % AUTHORS;
+		return author;
+	}
+
+	/**
+	 * Alternately appends a suffix to the name of the given author and removes it again.
+	 */
+	private void rename(Session session, int author) {
+		Author entity = (Author) session.get( Author.class, authorIds[author] );
+		renamed[author] = !renamed[author];
+		entity.setName( currentName( author ) );
+		renames++;
+	}
+
+	private String currentName(int author) {
+		return renamed[author] ? authorNames[author] + RENAMED_SUFFIX : authorNames[author];
+	}
+
+	/**
+	 * Selects the authors whose number of books is closest to {@link #booksPerAuthor}.
+	 */
+	private void selectAuthors() {
+		Session session = sessionFactory.openSession();
+		try {
+			List<?> authors = session.createQuery(
+					"select a.id, a.name, count(b.id) from Book b join b.authors a " +
+							"group by a.id, a.name order by abs(count(b.id) - :booksPerAuthor), a.id"
+			)
+					.setLong( "booksPerAuthor", booksPerAuthor )
+					.setMaxResults( AUTHORS )
+					.list();
+			assertEquals( "Not enough authors", AUTHORS, authors.size() );
+
+			authorIds = new int[AUTHORS];
+			authorNames = new String[AUTHORS];
+			authorBookCounts = new int[AUTHORS];
+			renamed = new boolean[AUTHORS];
+			int books = 0;
+			for ( int i = 0; i < AUTHORS; i++ ) {
+				Object[] author = (Object[]) authors.get( i );
+				authorIds[i] = (Integer) author[0];
+				authorNames[i] = (String) author[1];
+				authorBookCounts[i] = ( (Long) author[2] ).intValue();
+				books += authorBookCounts[i];
+			}
+			MetricsProfiler.gauge( "booksPerRenamedAuthor", (double) books / AUTHORS, "books" );
+		}
+		finally {
+			session.close();
+		}
+	}
+
+	private SessionFactory buildWorkerSessionFactory(String execution) {
+		Configuration cfg = buildConfiguration();
+		cfg.setProperty( "hibernate.search.default.indexBase", indexBase.getPath() );
+		cfg.setProperty( "hibernate.search.default.worker.execution", execution );
+		return cfg.buildSessionFactory();
+	}
+
+	private void assertBooksReindexed(SessionFactory sessionFactory) {
+		FullTextSession fullTextSession = Search.getFullTextSession( sessionFactory.openSession() );
+		try {
+			for ( int i = 0; i < AUTHORS; i++ ) {
+				TermQuery query = new TermQuery( new Term( AUTHOR_NAME_FIELD, currentName( i ) ) );
+				assertEquals(
+						"Books of " + currentName( i ) + " not reindexed",
+						authorBookCounts[i],
+						fullTextSession.createFullTextQuery( query, Book.class ).getResultSize()
+				);
+			}
+		}
+		finally {
+			fullTextSession.close();
+		}
+	}
+
+	/**
+	 * Restores the names in the database only, the copied index is discarded.
+	 */
+	private void restoreAuthorNames(SessionFactory sessionFactory) {
+		Session session = sessionFactory.openSession();
+		try {
+			Transaction transaction = session.beginTransaction();
+			for ( int i = 0; i < AUTHORS; i++ ) {
+				session.createQuery( "update Author set name = :name where id = :id" )
+						.setString( "name", authorNames[i] )
+						.setInteger( "id", authorIds[i] )
+						.executeUpdate();
+				renamed[i] = false;
+			}
+			transaction.commit();
+		}
+		finally {
+			session.close();
+		}
+	}
+
+	// for testing in the IDE
+	public static void main(String[] args) throws Exception {
+		Options opt = new OptionsBuilder()
+				.include( ".*" + ReindexAmplificationPerformance.class.getSimpleName() + ".*" )
+				.addProfiler( MetricsProfiler.class )
+				.build();
+		new Runner( opt ).run();
+	}
+}
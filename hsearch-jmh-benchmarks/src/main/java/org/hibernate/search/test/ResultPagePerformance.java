@@ -0,0 +1,220 @@
+package org.hibernate.search.test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.lucene.document.Document;
+import org.apache.lucene.search.MatchAllDocsQuery;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import org.hibernate.CacheMode;
+import org.hibernate.cache.ehcache.EhCacheRegionFactory;
+import org.hibernate.cfg.Configuration;
+import org.hibernate.cfg.Environment;
+import org.hibernate.search.FullTextQuery;
+import org.hibernate.search.FullTextSession;
+import org.hibernate.search.Search;
+import org.hibernate.search.query.DatabaseRetrievalMethod;
+import org.hibernate.search.query.ObjectLookupMethod;
+import org.hibernate.stat.Statistics;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Returns a page of hits together with the author facets, as a search results page would. The hits are either
+ * loaded as entities from the database, projected from the stored fields of the index or loaded as entities via
+ * the second-level cache. With {@code -prof metrics} the average number of JDBC statements and second-level cache
+ * hits per page of each iteration are reported.
+ * <p>
+ * The authors are multi-valued, projecting {@code authors.name} would only return the first author of each book, so
+ * the projection returns the Lucene document and reads all stored author names from it.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@Warmup(iterations = 1)
+@Measurement(iterations = 2)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+public class ResultPagePerformance extends AbstractFacetingBenchmark {
+	private static final String AUTHOR_NAMES_FIELD = "authors.name";
+	private static final String[] PROJECTION = {
+			FullTextQuery.ID, "title", "isbn", "publisher", FullTextQuery.DOCUMENT
+	};
+
+	@Param({ "10", "20", "50" })
+	public int pageSize;
+
+	/**
+	 * The value of {@code hibernate.default_batch_fetch_size}.
+	 */
+	@Param({ "1", "20" })
+	public int batchFetchSize;
+
+	// incremented by all benchmark threads
+	private final AtomicLong pages = new AtomicLong();
+
+	@Setup
+	public void setUp() throws Exception {
+		setUpIndexes();
+
+		// fills the second-level cache
+		secondLevelCacheLoading();
+		assertProjectedAuthors();
+
+		sessionFactory.getStatistics().clear();
+		pages.set( 0 );
+	}
+
+	@TearDown(Level.Iteration)
+	public void recordStatistics() {
+		Statistics statistics = sessionFactory.getStatistics();
+		long pageCount = pages.get();
+		if ( pageCount > 0 ) {
+			MetricsProfiler.gauge(
+					"statements", (double) statistics.getPrepareStatementCount() / pageCount, "statements/page"
+			);
+			MetricsProfiler.gauge(
+					"secondLevelCacheHits", (double) statistics.getSecondLevelCacheHitCount() / pageCount, "hits/page"
+			);
+		}
+		statistics.clear();
+		pages.set( 0 );
+	}
+
+	@Override
+	protected Configuration buildConfiguration() {
+		Configuration cfg = super.buildConfiguration();
+		cfg.setProperty( Environment.DEFAULT_BATCH_FETCH_SIZE, String.valueOf( batchFetchSize ) );
+		cfg.setProperty( Environment.GENERATE_STATISTICS, "true" );
+		cfg.setProperty( Environment.USE_SECOND_LEVEL_CACHE, "true" );
+		cfg.setProperty( Environment.CACHE_REGION_FACTORY, EhCacheRegionFactory.class.getName() );
+		cfg.setCacheConcurrencyStrategy( Book.class.getName(), "read-only" );
+		cfg.setCacheConcurrencyStrategy( Author.class.getName(), "read-only" );
+		cfg.setCollectionCacheConcurrencyStrategy( Book.class.getName() + ".authors", "read-only" );
+		return cfg;
+	}
+
+	@Benchmark
+	public void entityLoading() {
+		FullTextSession fullTextSession = Search.getFullTextSession( sessionFactory.openSession() );
+		try {
+			fullTextSession.setCacheMode( CacheMode.IGNORE );
+			FullTextQuery fullTextQuery = createPageQuery( fullTextSession );
+			assertBooks( fullTextQuery.list() );
+			assertTopAuthor( fullTextQuery.getFacetManager().getFacets( AUTHOR_NAME_FACET ) );
+		}
+		finally {
+			fullTextSession.close();
+		}
+		pages.incrementAndGet();
+	}
+
+	@Benchmark
+	public void projection() {
+		FullTextSession fullTextSession = Search.getFullTextSession( sessionFactory.openSession() );
+		try {
+			FullTextQuery fullTextQuery = createPageQuery( fullTextSession ).setProjection( PROJECTION );
+			List<?> rows = fullTextQuery.list();
+			assertEquals( "Wrong page size", pageSize, rows.size() );
+			for ( Object row : rows ) {
+				Object[] values = (Object[]) row;
+				assertNotNull( "Missing id", values[0] );
+				// rendered on the results page
+				assertTrue( "Missing authors", getAuthorNames( values ).length > 0 );
+			}
+			assertTopAuthor( fullTextQuery.getFacetManager().getFacets( AUTHOR_NAME_FACET ) );
+		}
+		finally {
+			fullTextSession.close();
+		}
+		pages.incrementAndGet();
+	}
+
+	@Benchmark
+	public void secondLevelCacheLoading() {
+		FullTextSession fullTextSession = Search.getFullTextSession( sessionFactory.openSession() );
+		try {
+			FullTextQuery fullTextQuery = createPageQuery( fullTextSession ).initializeObjectsWith(
+					ObjectLookupMethod.SECOND_LEVEL_CACHE, DatabaseRetrievalMethod.QUERY
+			);
+			assertBooks( fullTextQuery.list() );
+			assertTopAuthor( fullTextQuery.getFacetManager().getFacets( AUTHOR_NAME_FACET ) );
+		}
+		finally {
+			fullTextSession.close();
+		}
+		pages.incrementAndGet();
+	}
+
+	private FullTextQuery createPageQuery(FullTextSession fullTextSession) {
+		FullTextQuery fullTextQuery = fullTextSession.createFullTextQuery( new MatchAllDocsQuery(), Book.class )
+				.setMaxResults( pageSize );
+		fullTextQuery.getFacetManager().enableFaceting( createAuthorFacetingRequest( fullTextSession ) );
+		return fullTextQuery;
+	}
+
+	/**
+	 * Checks that the projection returns all authors of each book on the page.
+	 */
+	private void assertProjectedAuthors() {
+		FullTextSession fullTextSession = Search.getFullTextSession( sessionFactory.openSession() );
+		try {
+			Map<Object, Integer> authorCounts = new HashMap<Object, Integer>();
+			for ( Object book : createPageQuery( fullTextSession ).list() ) {
+				authorCounts.put( fullTextSession.getIdentifier( book ), ( (Book) book ).getAuthors().size() );
+			}
+			List<?> rows = createPageQuery( fullTextSession ).setProjection( PROJECTION ).list();
+			for ( Object row : rows ) {
+				Object[] values = (Object[]) row;
+				assertEquals(
+						"Wrong number of projected authors for book " + values[0],
+						authorCounts.get( values[0] ),
+						Integer.valueOf( getAuthorNames( values ).length )
+				);
+			}
+		}
+		finally {
+			fullTextSession.close();
+		}
+	}
+
+	private static String[] getAuthorNames(Object[] projectedValues) {
+		return ( (Document) projectedValues[PROJECTION.length - 1] ).getValues( AUTHOR_NAMES_FIELD );
+	}
+
+	private void assertBooks(List<?> books) {
+		assertEquals( "Wrong page size", pageSize, books.size() );
+		for ( Object book : books ) {
+			// rendered on the results page
+			assertFalse( "Missing authors", ( (Book) book ).getAuthors().isEmpty() );
+		}
+	}
+
+	// for testing in the IDE
+	public static void main(String[] args) throws Exception {
+		Options opt = new OptionsBuilder()
+				.include( ".*" + ResultPagePerformance.class.getSimpleName() + ".*" )
+				.addProfiler( MetricsProfiler.class )
+				.build();
+		new Runner( opt ).run();
+	}
+}
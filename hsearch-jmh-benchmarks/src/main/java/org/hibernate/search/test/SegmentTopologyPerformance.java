@@ -0,0 +1,373 @@
+package org.hibernate.search.test;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.lucene.facet.FacetResult;
+import org.apache.lucene.facet.sortedset.DefaultSortedSetDocValuesReaderState;
+import org.apache.lucene.facet.sortedset.SortedSetDocValuesReaderState;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.LogByteSizeMergePolicy;
+import org.apache.lucene.index.MergePolicy;
+import org.apache.lucene.index.TieredMergePolicy;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.MatchAllDocsQuery;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.FSDirectory;
+import org.apache.lucene.store.IOContext;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import org.hibernate.CacheMode;
+import org.hibernate.SessionFactory;
+import org.hibernate.cfg.Configuration;
+import org.hibernate.search.FullTextSession;
+import org.hibernate.search.Search;
+import org.hibernate.search.query.facet.Facet;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Facets on indexes with a controlled number of segments. For both engines an index with {@value #MAX_SEGMENTS}
+ * segments is built without merging first, the layouts with fewer segments are then created from it via
+ * {@code forceMerge(segments)} using the given merge policy and merge factor. As the Hibernate Search index is a
+ * plain Lucene index, it is force-merged the same way, Hibernate Search itself only offers merging into a single
+ * segment via {@code optimize()}.
+ * <p>
+ * The unmerged index does not depend on the merge settings, so it is measured by the {@code Unmerged} benchmarks,
+ * whose states do not have the merge parameters, instead of once per merge setting.
+ * <p>
+ * The layouts are kept in {@code target/native-lucene-layouts} and {@code target/hsearch-lucene-layouts}. With
+ * {@code -prof metrics} their number of segments and size are reported, as well as their build time if they were
+ * built by the trial.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@Warmup(iterations = 1)
+@Measurement(iterations = 2)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+public class SegmentTopologyPerformance extends AbstractFacetingBenchmark {
+	private static final int MAX_SEGMENTS = 200;
+	private static final String NATIVE_LAYOUT_DIR = "target/native-lucene-layouts";
+	private static final String HSEARCH_LAYOUT_DIR = "target/hsearch-lucene-layouts";
+
+	/**
+	 * The settings of a layout force-merged from the unmerged index.
+	 */
+	public abstract static class MergedLayout {
+		@Param({ "1", "10", "50" })
+		public int segments;
+
+		/**
+		 * Either {@code tiered} or {@code logbytesize}.
+		 */
+		@Param({ "tiered", "logbytesize" })
+		public String mergePolicy;
+
+		/**
+		 * The maximum number of segments merged at once.
+		 */
+		@Param({ "10", "50" })
+		public int mergeFactor;
+
+		protected File getLayoutDir(SegmentTopologyPerformance benchmark, String baseDir) {
+			return new File(
+					new File( new File( baseDir, benchmark.getDataSetName() ), mergePolicy + "-" + mergeFactor ),
+					"segments-" + segments
+			);
+		}
+
+		/**
+		 * Copies the files of the source index into the target index and force-merges them into {@link #segments}
+		 * segments. The files are copied rather than added via {@code addIndexes()}, as the latter already merges
+		 * according to the merge policy.
+		 */
+		protected void forceMerge(File sourceIndexDir, File targetIndexDir) throws IOException {
+			long start = System.nanoTime();
+			IndexWriterConfig iwc = NativeLuceneIndexer.createIndexWriterConfig();
+			iwc.setOpenMode( IndexWriterConfig.OpenMode.APPEND );
+			iwc.setMergePolicy( createMergePolicy() );
+
+			Directory source = FSDirectory.open( sourceIndexDir );
+			Directory target = FSDirectory.open( targetIndexDir );
+			try {
+				for ( String file : source.listAll() ) {
+					source.copy( target, file, file, IOContext.DEFAULT );
+				}
+				IndexWriter writer = new IndexWriter( target, iwc );
+				try {
+					writer.forceMerge( segments );
+				}
+				finally {
+					writer.close();
+				}
+			}
+			finally {
+				target.close();
+				source.close();
+			}
+			recordBuildTime( "layout.forceMerge", start );
+		}
+
+		private MergePolicy createMergePolicy() {
+			if ( "tiered".equals( mergePolicy ) ) {
+				TieredMergePolicy tieredMergePolicy = new TieredMergePolicy();
+				tieredMergePolicy.setMaxMergeAtOnce( mergeFactor );
+				tieredMergePolicy.setMaxMergeAtOnceExplicit( mergeFactor );
+				tieredMergePolicy.setSegmentsPerTier( mergeFactor );
+				return tieredMergePolicy;
+			}
+			else if ( "logbytesize".equals( mergePolicy ) ) {
+				LogByteSizeMergePolicy logByteSizeMergePolicy = new LogByteSizeMergePolicy();
+				logByteSizeMergePolicy.setMergeFactor( mergeFactor );
+				return logByteSizeMergePolicy;
+			}
+			else {
+				throw new IllegalArgumentException( "Unknown merge policy: " + mergePolicy );
+			}
+		}
+	}
+
+	@State(Scope.Benchmark)
+	public static class NativeLayout extends MergedLayout {
+		private NativeIndex index;
+
+		@Setup
+		public void setUp(SegmentTopologyPerformance benchmark) throws Exception {
+			File indexDir = getLayoutDir( benchmark, NATIVE_LAYOUT_DIR );
+			if ( !indexDir.exists() ) {
+				forceMerge( benchmark.getSegmentedNativeIndexDir( MAX_SEGMENTS ), indexDir );
+			}
+			index = new NativeIndex( indexDir, segments );
+		}
+
+		@TearDown
+		public void tearDown() throws IOException {
+			index.close();
+		}
+	}
+
+	@State(Scope.Benchmark)
+	public static class NativeUnmergedLayout {
+		private NativeIndex index;
+
+		@Setup
+		public void setUp(SegmentTopologyPerformance benchmark) throws Exception {
+			index = new NativeIndex( benchmark.getSegmentedNativeIndexDir( MAX_SEGMENTS ), MAX_SEGMENTS );
+		}
+
+		@TearDown
+		public void tearDown() throws IOException {
+			index.close();
+		}
+	}
+
+	@State(Scope.Benchmark)
+	public static class HSearchLayout extends MergedLayout {
+		private SessionFactory sessionFactory;
+
+		@Setup
+		public void setUp(SegmentTopologyPerformance benchmark) throws Exception {
+			File unmergedIndexBase = benchmark.getUnmergedHSearchIndexBase();
+			File indexBase = getLayoutDir( benchmark, HSEARCH_LAYOUT_DIR );
+			if ( !indexBase.exists() ) {
+				forceMerge(
+						new File( unmergedIndexBase, Book.class.getName() ),
+						new File( indexBase, Book.class.getName() )
+				);
+			}
+			sessionFactory = benchmark.openHSearchLayout( indexBase, segments );
+		}
+
+		@TearDown
+		public void tearDown() {
+			sessionFactory.close();
+		}
+	}
+
+	@State(Scope.Benchmark)
+	public static class HSearchUnmergedLayout {
+		private SessionFactory sessionFactory;
+
+		@Setup
+		public void setUp(SegmentTopologyPerformance benchmark) throws Exception {
+			sessionFactory = benchmark.openHSearchLayout( benchmark.getUnmergedHSearchIndexBase(), MAX_SEGMENTS );
+		}
+
+		@TearDown
+		public void tearDown() {
+			sessionFactory.close();
+		}
+	}
+
+	/**
+	 * A native layout opened for searching.
+	 */
+	private static class NativeIndex {
+		private final Directory directory;
+		private final DirectoryReader reader;
+		private final IndexSearcher searcher;
+
+		private NativeIndex(File indexDir, int segments) throws IOException {
+			directory = FSDirectory.open( indexDir );
+			reader = DirectoryReader.open( directory );
+			searcher = new IndexSearcher( reader );
+			recordLayout( reader, directory );
+			assertLayout( segments, reader );
+		}
+
+		private void close() throws IOException {
+			reader.close();
+			directory.close();
+		}
+	}
+
+	@Setup
+	public void setUp() throws Exception {
+		setUpIndexes();
+	}
+
+	@Benchmark
+	public void hsearchFaceting(HSearchLayout layout) {
+		hsearchFaceting( layout.sessionFactory );
+	}
+
+	@Benchmark
+	public void hsearchFacetingUnmerged(HSearchUnmergedLayout layout) {
+		hsearchFaceting( layout.sessionFactory );
+	}
+
+	@Benchmark
+	public void luceneFaceting(NativeLayout layout) throws Exception {
+		luceneFaceting( layout.index );
+	}
+
+	@Benchmark
+	public void luceneFacetingUnmerged(NativeUnmergedLayout layout) throws Exception {
+		luceneFaceting( layout.index );
+	}
+
+	private void hsearchFaceting(SessionFactory layoutSessionFactory) {
+		FullTextSession fullTextSession = Search.getFullTextSession( layoutSessionFactory.openSession() );
+		try {
+			List<Facet> facets = hsearchFaceting( fullTextSession, new MatchAllDocsQuery() );
+			assertTopAuthor( facets );
+		}
+		finally {
+			fullTextSession.close();
+		}
+	}
+
+	private void luceneFaceting(NativeIndex index) throws Exception {
+		SortedSetDocValuesReaderState docValuesReaderState = new DefaultSortedSetDocValuesReaderState( index.reader );
+
+		FacetResult topFacetResult = luceneFaceting( index.searcher, docValuesReaderState, new MatchAllDocsQuery() );
+		assertTopAuthor( topFacetResult );
+	}
+
+	/**
+	 * Returns the index base of the unmerged Hibernate Search index, building it on first use.
+	 */
+	private File getUnmergedHSearchIndexBase() throws Exception {
+		File indexBase = new File( new File( HSEARCH_LAYOUT_DIR, getDataSetName() ), "segments-" + MAX_SEGMENTS );
+		if ( !indexBase.exists() ) {
+			buildUnmergedHSearchIndex( indexBase );
+		}
+		return indexBase;
+	}
+
+	/**
+	 * Flushes a segment every {@code books / MAX_SEGMENTS} documents, with a merge factor high enough to never merge.
+	 */
+	private void buildUnmergedHSearchIndex(File indexBase) throws Exception {
+		long start = System.nanoTime();
+		SessionFactory layoutSessionFactory = buildSessionFactory( indexBase, getDocumentsPerSegment( MAX_SEGMENTS ) );
+		try {
+			FullTextSession fullTextSession = Search.getFullTextSession( layoutSessionFactory.openSession() );
+			try {
+				fullTextSession.createIndexer( Book.class )
+						.threadsToLoadObjects( 1 )
+						.cacheMode( CacheMode.IGNORE )
+						.optimizeOnFinish( false )
+						.optimizeAfterPurge( false )
+						.startAndWait();
+			}
+			finally {
+				fullTextSession.close();
+			}
+		}
+		finally {
+			layoutSessionFactory.close();
+		}
+		recordBuildTime( "layout.unmergedIndex", start );
+	}
+
+	/**
+	 * Opens a session factory on the given Hibernate Search layout and checks its number of segments.
+	 */
+	private SessionFactory openHSearchLayout(File indexBase, int segments) throws IOException {
+		SessionFactory layoutSessionFactory = buildSessionFactory( indexBase, getDocumentsPerSegment( 1 ) );
+		Directory directory = FSDirectory.open( new File( indexBase, Book.class.getName() ) );
+		try {
+			DirectoryReader reader = DirectoryReader.open( directory );
+			try {
+				recordLayout( reader, directory );
+				assertLayout( segments, reader );
+			}
+			finally {
+				reader.close();
+			}
+		}
+		finally {
+			directory.close();
+		}
+		return layoutSessionFactory;
+	}
+
+	private SessionFactory buildSessionFactory(File indexBase, int maxBufferedDocs) {
+		Configuration cfg = buildConfiguration();
+		cfg.setProperty( "hibernate.search.default.indexBase", indexBase.getPath() );
+		cfg.setProperty( "hibernate.search.default.indexwriter.max_buffered_docs", String.valueOf( maxBufferedDocs ) );
+		cfg.setProperty( "hibernate.search.default.indexwriter.merge_factor", String.valueOf( MAX_SEGMENTS + 1 ) );
+		cfg.setProperty( "hibernate.search.default.indexwriter.ram_buffer_size", "1024" );
+		return cfg.buildSessionFactory();
+	}
+
+	private static void recordBuildTime(String label, long start) {
+		MetricsProfiler.gauge( label, TimeUnit.NANOSECONDS.toMillis( System.nanoTime() - start ), "ms" );
+	}
+
+	private static void recordLayout(DirectoryReader reader, Directory directory) throws IOException {
+		MetricsProfiler.gauge( "layout.segments", reader.leaves().size(), "segments" );
+		MetricsProfiler.gauge( "layout.size", sizeOf( directory ) / ( 1024.0 * 1024.0 ), "MB" );
+	}
+
+	private static void assertLayout(int segments, DirectoryReader reader) {
+		assertEquals( "Wrong number of segments", segments, reader.leaves().size() );
+	}
+
+	// for testing in the IDE
+	public static void main(String[] args) throws Exception {
+		Options opt = new OptionsBuilder()
+				.include( ".*" + SegmentTopologyPerformance.class.getSimpleName() + ".*" )
+				.addProfiler( MetricsProfiler.class )
+				.build();
+		new Runner( opt ).run();
+	}
+}
@@ -0,0 +1,310 @@
+package org.hibernate.search.test;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.lucene.facet.FacetResult;
+import org.apache.lucene.facet.sortedset.DefaultSortedSetDocValuesReaderState;
+import org.apache.lucene.facet.sortedset.SortedSetDocValuesReaderState;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.MultiReader;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.MatchAllDocsQuery;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.FSDirectory;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import org.hibernate.CacheMode;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.cfg.Configuration;
+import org.hibernate.search.FullTextSession;
+import org.hibernate.search.Search;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Splits the books into {@code shards} indexes. Hibernate Search uses its {@code IdHashShardingStrategy} via
+ * {@code sharding_strategy.nbr_of_shards}, the native index is split by {@link NativeLuceneIndexer#indexShards}
+ * and searched through a {@code MultiReader}. {@code hsearchIndexing} and {@code luceneIndexing} rebuild the
+ * shards, the {@code documents} counter reports the indexed documents per second. {@code hsearchFaceting} and
+ * {@code luceneFaceting} facet on all shards.
+ * <p>
+ * {@code hsearchFootprint} and {@code luceneFootprint} open the shards cold and facet once, with {@code -prof metrics}
+ * the heap retained by the shard readers and the faceting structures is reported, measured as the difference of the
+ * used heap after full garbage collections. For Hibernate Search the session factory is built before the first
+ * measurement, so it is not included. The numbers are only meaningful with a single benchmark thread, and for small
+ * data sets they are dominated by the garbage left behind by the previous invocation.
+ * <p>
+ * The shards are kept in {@code target/hsearch-lucene-shards} and {@code target/native-lucene-shards}.
+ */
+@Warmup(iterations = 1)
+@Measurement(iterations = 2)
+@State(Scope.Benchmark)
+public class ShardingPerformance extends AbstractFacetingBenchmark {
+	private static final String HSEARCH_SHARDS_DIR = "target/hsearch-lucene-shards";
+	private static final String NATIVE_SHARDS_DIR = "target/native-lucene-shards";
+	private static final double RAM_BUFFER_SIZE_MB = 64;
+
+	@Param({ "1", "2", "4", "8" })
+	public int shards;
+
+	private long bookCount;
+
+	@State(Scope.Benchmark)
+	public static class HSearchShards {
+		private ShardingPerformance benchmark;
+		private File indexBase;
+		private SessionFactory sessionFactory;
+
+		@Setup
+		public void setUp(ShardingPerformance benchmark) throws Exception {
+			this.benchmark = benchmark;
+			indexBase = new File( benchmark.getShardsDir( HSEARCH_SHARDS_DIR ), "shards-" + benchmark.shards );
+			boolean needsIndexing = !indexBase.exists();
+
+			sessionFactory = buildSessionFactory();
+			if ( needsIndexing ) {
+				massIndex( sessionFactory );
+			}
+		}
+
+		@TearDown
+		public void tearDown() {
+			sessionFactory.close();
+		}
+
+		private SessionFactory buildSessionFactory() {
+			Configuration cfg = benchmark.buildConfiguration();
+			cfg.setProperty( "hibernate.search.default.indexBase", indexBase.getPath() );
+			cfg.setProperty(
+					"hibernate.search." + Book.class.getName() + ".sharding_strategy.nbr_of_shards",
+					String.valueOf( benchmark.shards )
+			);
+			return cfg.buildSessionFactory();
+		}
+	}
+
+	@State(Scope.Benchmark)
+	public static class NativeShards {
+		private Directory[] directories;
+
+		@Setup
+		public void setUp(ShardingPerformance benchmark) throws Exception {
+			File shardsDir = new File( benchmark.getShardsDir( NATIVE_SHARDS_DIR ), "shards-" + benchmark.shards );
+			boolean needsIndexing = !shardsDir.exists();
+
+			directories = new Directory[benchmark.shards];
+			for ( int i = 0; i < benchmark.shards; i++ ) {
+				directories[i] = FSDirectory.open( new File( shardsDir, "shard-" + i ) );
+			}
+			if ( needsIndexing ) {
+				benchmark.indexShards( directories );
+			}
+		}
+
+		@TearDown
+		public void tearDown() throws IOException {
+			for ( Directory directory : directories ) {
+				directory.close();
+			}
+		}
+	}
+
+	@State(Scope.Benchmark)
+	public static class NativeShardReaders {
+		private IndexReader reader;
+		private IndexSearcher searcher;
+		private SortedSetDocValuesReaderState docValuesReaderState;
+
+		@Setup
+		public void setUp(NativeShards shards) throws Exception {
+			IndexReader[] shardReaders = new IndexReader[shards.directories.length];
+			for ( int i = 0; i < shardReaders.length; i++ ) {
+				shardReaders[i] = DirectoryReader.open( shards.directories[i] );
+			}
+			reader = new MultiReader( shardReaders );
+			searcher = new IndexSearcher( reader );
+			docValuesReaderState = new DefaultSortedSetDocValuesReaderState( reader );
+		}
+
+		@TearDown
+		public void tearDown() throws IOException {
+			// closes the shard readers as well
+			reader.close();
+		}
+	}
+
+	@AuxCounters
+	@State(Scope.Thread)
+	public static class IndexingCounters {
+		public long documents;
+
+		@Setup(Level.Iteration)
+		public void reset() {
+			documents = 0;
+		}
+	}
+
+	@Setup
+	public void setUp() throws Exception {
+		setUpIndexes();
+		Session session = sessionFactory.openSession();
+		try {
+			bookCount = (Long) session.createQuery( "select count(*) from Book" ).uniqueResult();
+		}
+		finally {
+			session.close();
+		}
+	}
+
+	@Benchmark
+	@BenchmarkMode(Mode.Throughput)
+	@OutputTimeUnit(TimeUnit.SECONDS)
+	public void hsearchIndexing(HSearchShards shards, IndexingCounters counters) throws Exception {
+		massIndex( shards.sessionFactory );
+		counters.documents += bookCount;
+	}
+
+	@Benchmark
+	@BenchmarkMode(Mode.Throughput)
+	@OutputTimeUnit(TimeUnit.SECONDS)
+	public void luceneIndexing(NativeShards shards, IndexingCounters counters) throws Exception {
+		counters.documents += indexShards( shards.directories );
+	}
+
+	@Benchmark
+	@BenchmarkMode(Mode.AverageTime)
+	@OutputTimeUnit(TimeUnit.MICROSECONDS)
+	public void hsearchFaceting(HSearchShards shards) {
+		FullTextSession fullTextSession = Search.getFullTextSession( shards.sessionFactory.openSession() );
+		try {
+			assertTopAuthor( hsearchFaceting( fullTextSession, new MatchAllDocsQuery() ) );
+		}
+		finally {
+			fullTextSession.close();
+		}
+	}
+
+	@Benchmark
+	@BenchmarkMode(Mode.AverageTime)
+	@OutputTimeUnit(TimeUnit.MICROSECONDS)
+	public void luceneFaceting(NativeShardReaders readers) throws Exception {
+		FacetResult topFacetResult = luceneFaceting(
+				readers.searcher, readers.docValuesReaderState, new MatchAllDocsQuery()
+		);
+		assertTopAuthor( topFacetResult );
+	}
+
+	@Benchmark
+	@BenchmarkMode(Mode.SingleShotTime)
+	@OutputTimeUnit(TimeUnit.MILLISECONDS)
+	public void hsearchFootprint(HSearchShards shards) throws Exception {
+		SessionFactory coldSessionFactory = shards.buildSessionFactory();
+		try {
+			long usedHeap = usedHeapAfterGc();
+			FullTextSession fullTextSession = Search.getFullTextSession( coldSessionFactory.openSession() );
+			try {
+				// opens the shards and loads the field caches
+				assertTopAuthor( hsearchFaceting( fullTextSession, new MatchAllDocsQuery() ) );
+				recordRetainedHeap( usedHeap );
+			}
+			finally {
+				fullTextSession.close();
+			}
+		}
+		finally {
+			coldSessionFactory.close();
+		}
+	}
+
+	@Benchmark
+	@BenchmarkMode(Mode.SingleShotTime)
+	@OutputTimeUnit(TimeUnit.MILLISECONDS)
+	public void luceneFootprint(NativeShards shards) throws Exception {
+		long usedHeap = usedHeapAfterGc();
+		NativeShardReaders readers = new NativeShardReaders();
+		readers.setUp( shards );
+		try {
+			luceneFaceting( readers );
+			recordRetainedHeap( usedHeap );
+		}
+		finally {
+			readers.tearDown();
+		}
+	}
+
+	private static void recordRetainedHeap(long usedHeap) {
+		MetricsProfiler.gauge( "heap.retained", usedHeapAfterGc() - usedHeap, "bytes" );
+	}
+
+	private File getShardsDir(String baseDir) {
+		return new File( baseDir, getDataSetName() );
+	}
+
+	private long indexShards(Directory[] directories) throws Exception {
+		IndexWriter[] writers = new IndexWriter[directories.length];
+		try {
+			for ( int i = 0; i < directories.length; i++ ) {
+				IndexWriterConfig iwc = NativeLuceneIndexer.createIndexWriterConfig();
+				iwc.setOpenMode( IndexWriterConfig.OpenMode.CREATE );
+				// the same total buffer size for any number of shards
+				iwc.setRAMBufferSizeMB( RAM_BUFFER_SIZE_MB / directories.length );
+				writers[i] = new IndexWriter( directories[i], iwc );
+			}
+			long indexed = new NativeLuceneIndexer( sessionFactory, Runtime.getRuntime().availableProcessors(), 0 )
+					.indexShards( writers );
+			assertEquals( "Wrong number of indexed books", bookCount, indexed );
+			return indexed;
+		}
+		finally {
+			for ( IndexWriter writer : writers ) {
+				if ( writer != null ) {
+					writer.close();
+				}
+			}
+		}
+	}
+
+	private static void massIndex(SessionFactory sessionFactory) throws InterruptedException {
+		FullTextSession fullTextSession = Search.getFullTextSession( sessionFactory.openSession() );
+		try {
+			fullTextSession.createIndexer( Book.class )
+					.cacheMode( CacheMode.IGNORE )
+					.optimizeAfterPurge( false )
+					.optimizeOnFinish( false )
+					.startAndWait();
+		}
+		finally {
+			fullTextSession.close();
+		}
+	}
+
+	// for testing in the IDE
+	public static void main(String[] args) throws Exception {
+		Options opt = new OptionsBuilder()
+				.include( ".*" + ShardingPerformance.class.getSimpleName() + ".*" )
+				.addProfiler( MetricsProfiler.class )
+				.build();
+		new Runner( opt ).run();
+	}
+}
@@ -0,0 +1,57 @@
+package org.hibernate.search.test;
+
+import java.io.IOException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.apache.lucene.facet.sortedset.DefaultSortedSetDocValuesReaderState;
+import org.apache.lucene.facet.sortedset.SortedSetDocValuesReaderState;
+import org.apache.lucene.index.IndexReader;
+
+/**
+ * Caches the {@code SortedSetDocValuesReaderState} per top-level reader. Creating the state builds the global
+ * ordinal map over all segments, which only needs to be done again once the searcher gets reopened. The state of a
+ * reader is removed from the cache as soon as the reader is closed.
+ */
+public class SortedSetDocValuesReaderStateCache {
+	private final ConcurrentMap<Object, SortedSetDocValuesReaderState> states =
+			new ConcurrentHashMap<Object, SortedSetDocValuesReaderState>();
+
+	private final IndexReader.ReaderClosedListener evictionListener = new IndexReader.ReaderClosedListener() {
+		@Override
+		public void onClose(IndexReader reader) {
+			states.remove( reader.getCombinedCoreAndDeletesKey() );
+		}
+	};
+
+	/**
+	 * @param reader a top-level reader
+	 *
+	 * @return the state for the given reader, created on first access
+	 *
+	 * @throws IOException in case the state cannot be created
+	 */
+	public SortedSetDocValuesReaderState getState(IndexReader reader) throws IOException {
+		Object key = reader.getCombinedCoreAndDeletesKey();
+		SortedSetDocValuesReaderState state = states.get( key );
+		if ( state == null ) {
+			// only one thread builds the state of a new reader, the others wait for it
+			synchronized ( this ) {
+				state = states.get( key );
+				if ( state == null ) {
+					state = new DefaultSortedSetDocValuesReaderState( reader );
+					states.put( key, state );
+					reader.addReaderClosedListener( evictionListener );
+				}
+			}
+		}
+		return state;
+	}
+
+	/**
+	 * @return the number of cached states, that is the number of open readers the cache has seen
+	 */
+	public int size() {
+		return states.size();
+	}
+}
@@ -0,0 +1,177 @@
+package org.hibernate.search.test;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.lucene.facet.FacetResult;
+import org.apache.lucene.facet.FacetsCollector;
+import org.apache.lucene.facet.FacetsConfig;
+import org.apache.lucene.facet.sortedset.DefaultSortedSetDocValuesReaderState;
+import org.apache.lucene.facet.sortedset.SortedSetDocValuesReaderState;
+import org.apache.lucene.facet.taxonomy.FastTaxonomyFacetCounts;
+import org.apache.lucene.facet.taxonomy.TaxonomyReader;
+import org.apache.lucene.facet.taxonomy.directory.DirectoryTaxonomyReader;
+import org.apache.lucene.facet.taxonomy.directory.DirectoryTaxonomyWriter;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.MatchAllDocsQuery;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.FSDirectory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Compares faceting on the sorted set doc values of the native index with faceting on a taxonomy index built from
+ * the same books. {@code sortedSetFaceting} and {@code taxonomyFaceting} measure the query latency with the reader
+ * state respectively taxonomy reader opened once, {@code sortedSetReaderOpen} and {@code taxonomyReaderOpen} the
+ * cost of opening the readers including the global ordinal map respectively the taxonomy arrays, as paid on each
+ * reopen. The index sizes are printed during setup, see {@code NativeLuceneIndexingPerformance} for the indexing
+ * overhead.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@Warmup(iterations = 1)
+@Measurement(iterations = 2)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+public class TaxonomyFacetingPerformance extends AbstractFacetingBenchmark {
+	private static final String TAXONOMY_LUCENE_INDEX_DIR = "target/native-lucene-taxonomy";
+	private static final double RAM_BUFFER_SIZE_MB = 64;
+
+	private final FacetsConfig facetsConfig = NativeLuceneIndexer.createFacetsConfig();
+
+	private Directory sortedSetDirectory;
+	private DirectoryReader sortedSetReader;
+	private IndexSearcher sortedSetSearcher;
+	private SortedSetDocValuesReaderState docValuesReaderState;
+
+	private Directory taxonomyIndexDirectory;
+	private Directory taxonomyDirectory;
+	private DirectoryReader taxonomyIndexReader;
+	private IndexSearcher taxonomyIndexSearcher;
+	private TaxonomyReader taxonomyReader;
+
+	@Setup
+	public void setUp() throws Exception {
+		setUpIndexes();
+		File taxonomyIndexDir = new File( getTaxonomyIndexBaseDir(), "index" );
+		File taxonomyDir = new File( getTaxonomyIndexBaseDir(), "taxonomy" );
+		boolean needsIndexing = !taxonomyIndexDir.exists() || !taxonomyDir.exists();
+
+		sortedSetDirectory = openNativeIndexDirectory();
+		taxonomyIndexDirectory = FSDirectory.open( taxonomyIndexDir );
+		taxonomyDirectory = FSDirectory.open( taxonomyDir );
+		if ( needsIndexing ) {
+			createTaxonomyIndex();
+		}
+
+		sortedSetReader = DirectoryReader.open( sortedSetDirectory );
+		sortedSetSearcher = new IndexSearcher( sortedSetReader );
+		docValuesReaderState = new DefaultSortedSetDocValuesReaderState( sortedSetReader );
+
+		taxonomyIndexReader = DirectoryReader.open( taxonomyIndexDirectory );
+		taxonomyIndexSearcher = new IndexSearcher( taxonomyIndexReader );
+		taxonomyReader = new DirectoryTaxonomyReader( taxonomyDirectory );
+
+		System.out.printf(
+				"Sorted set index: %d bytes, taxonomy index: %d + %d bytes%n",
+				sizeOf( sortedSetDirectory ),
+				sizeOf( taxonomyIndexDirectory ),
+				sizeOf( taxonomyDirectory )
+		);
+	}
+
+	@TearDown
+	public void tearDown() throws IOException {
+		taxonomyReader.close();
+		taxonomyIndexReader.close();
+		taxonomyDirectory.close();
+		taxonomyIndexDirectory.close();
+		sortedSetReader.close();
+		sortedSetDirectory.close();
+	}
+
+	@Benchmark
+	public void sortedSetFaceting() throws Exception {
+		FacetResult topFacetResult = luceneFaceting( sortedSetSearcher, docValuesReaderState, new MatchAllDocsQuery() );
+		assertTopAuthor( topFacetResult );
+	}
+
+	@Benchmark
+	public void taxonomyFaceting() throws Exception {
+		FacetsCollector facetsCollector = new FacetsCollector();
+		taxonomyIndexSearcher.search( new MatchAllDocsQuery(), facetsCollector );
+
+		FastTaxonomyFacetCounts facets = new FastTaxonomyFacetCounts( taxonomyReader, facetsConfig, facetsCollector );
+		assertTopAuthor( facets.getTopChildren( MAX_FACET_COUNT, AUTHOR_NAME_FIELD ) );
+	}
+
+	@Benchmark
+	public int sortedSetReaderOpen() throws Exception {
+		DirectoryReader reader = DirectoryReader.open( sortedSetDirectory );
+		try {
+			return new DefaultSortedSetDocValuesReaderState( reader ).getSize();
+		}
+		finally {
+			reader.close();
+		}
+	}
+
+	@Benchmark
+	public int taxonomyReaderOpen() throws Exception {
+		DirectoryReader reader = DirectoryReader.open( taxonomyIndexDirectory );
+		DirectoryTaxonomyReader taxonomyReader = new DirectoryTaxonomyReader( taxonomyDirectory );
+		try {
+			// loaded lazily by the first faceting request otherwise
+			return taxonomyReader.getParallelTaxonomyArrays().parents().length;
+		}
+		finally {
+			taxonomyReader.close();
+			reader.close();
+		}
+	}
+
+	private File getTaxonomyIndexBaseDir() {
+		return new File( TAXONOMY_LUCENE_INDEX_DIR, getDataSetName() );
+	}
+
+	private void createTaxonomyIndex() throws Exception {
+		IndexWriterConfig iwc = NativeLuceneIndexer.createIndexWriterConfig();
+		iwc.setOpenMode( IndexWriterConfig.OpenMode.CREATE );
+		iwc.setRAMBufferSizeMB( RAM_BUFFER_SIZE_MB );
+
+		IndexWriter writer = new IndexWriter( taxonomyIndexDirectory, iwc );
+		DirectoryTaxonomyWriter taxonomyWriter = new DirectoryTaxonomyWriter(
+				taxonomyDirectory, IndexWriterConfig.OpenMode.CREATE
+		);
+		try {
+			new NativeLuceneIndexer( sessionFactory, Runtime.getRuntime().availableProcessors(), 0 )
+					.index( writer, taxonomyWriter );
+		}
+		finally {
+			taxonomyWriter.close();
+			writer.close();
+		}
+	}
+
+	// for testing in the IDE
+	public static void main(String[] args) throws Exception {
+		Options opt = new OptionsBuilder()
+				.include( ".*" + TaxonomyFacetingPerformance.class.getSimpleName() + ".*" )
+				.build();
+		new Runner( opt ).run();
+	}
+}
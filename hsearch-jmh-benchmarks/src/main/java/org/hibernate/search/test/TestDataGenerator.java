@@ -0,0 +1,271 @@
+package org.hibernate.search.test;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.Locale;
+import java.util.Random;
+
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.Transaction;
+import org.hibernate.jdbc.Work;
+
+/**
+ * Generates a synthetic, reproducible {@code Book}/{@code Author} data set, so that the benchmarks can run
+ * against an embedded database instead of a MySQL instance loaded with isbndb.com data.
+ * <p>
+ * The number of authors per book follows a Zipf distribution over {@code [1, maxAuthorsPerBook]}, the
+ * authors themselves are drawn from a Zipf distribution over all authors, which yields the typical long tail
+ * of books per author. Author 1 is the most prolific one. Titles and publishers are drawn from Zipf
+ * distributed vocabularies as well, so that title terms cover a wide range of document frequencies.
+ * <p>
+ * The rows are written via plain JDBC batches, bypassing the {@code Session} and hence Hibernate Search's
+ * automatic indexing.
+ */
+public class TestDataGenerator {
+	private static final int ROWS_PER_TRANSACTION = 10000;
+	private static final int TITLE_VOCABULARY_SIZE = 20000;
+	private static final double TITLE_VOCABULARY_EXPONENT = 1.0;
+	private static final int MIN_TITLE_WORDS = 2;
+	private static final int MAX_TITLE_WORDS = 8;
+	private static final int NUMBER_OF_PUBLISHERS = 200;
+	private static final double PUBLISHER_EXPONENT = 1.0;
+	private static final long SEED = 42L;
+
+	private static final String[] CONSONANTS = {
+			"b", "c", "d", "f", "g", "h", "j", "k", "l", "m", "n", "p", "r", "s", "t", "v", "w", "z", "br", "st"
+	};
+	private static final String[] VOWELS = { "a", "e", "i", "o", "u" };
+	private static final String[] FIRST_NAMES = {
+			"Anna", "Ben", "Clara", "David", "Emma", "Frank", "Grace", "Hugo", "Ida", "John",
+			"Karin", "Lars", "Maria", "Nils", "Olga", "Paul", "Rita", "Sven", "Tina", "Victor"
+	};
+
+	private final int numberOfBooks;
+	private final int numberOfAuthors;
+	private final int maxAuthorsPerBook;
+	private final double authorsPerBookExponent;
+	private final double booksPerAuthorExponent;
+
+	public TestDataGenerator(int numberOfBooks,
+			int numberOfAuthors,
+			int maxAuthorsPerBook,
+			double authorsPerBookExponent,
+			double booksPerAuthorExponent) {
+		if ( numberOfBooks < 1 || numberOfAuthors < 1 || maxAuthorsPerBook < 1 ) {
+			throw new IllegalArgumentException(
+					"The number of books, authors and authors per book must be positive"
+			);
+		}
+		this.numberOfBooks = numberOfBooks;
+		this.numberOfAuthors = numberOfAuthors;
+		this.maxAuthorsPerBook = Math.min( maxAuthorsPerBook, numberOfAuthors );
+		this.authorsPerBookExponent = authorsPerBookExponent;
+		this.booksPerAuthorExponent = booksPerAuthorExponent;
+	}
+
+	public int getNumberOfBooks() {
+		return numberOfBooks;
+	}
+
+	public int getNumberOfAuthors() {
+		return numberOfAuthors;
+	}
+
+	/**
+	 * @return a name uniquely identifying the generated data set, usable as database or directory name
+	 */
+	public String getDataSetName() {
+		return String.format(
+				Locale.ENGLISH,
+				"books-%d-authors-%d-max-%d-skew-%.2f-%.2f",
+				numberOfBooks,
+				numberOfAuthors,
+				maxAuthorsPerBook,
+				authorsPerBookExponent,
+				booksPerAuthorExponent
+		);
+	}
+
+	/**
+	 * Inserts the data set, unless the database already contains it.
+	 *
+	 * @param sessionFactory the session factory of the target database
+	 *
+	 * @return {@code true} if the data has been inserted, {@code false} if it already existed
+	 */
+	public boolean populate(SessionFactory sessionFactory) {
+		Session session = sessionFactory.openSession();
+		try {
+			long existingBooks = (Long) session.createQuery( "select count(*) from Book" ).uniqueResult();
+			if ( existingBooks == numberOfBooks ) {
+				return false;
+			}
+			if ( existingBooks != 0 ) {
+				throw new IllegalStateException(
+						"Database contains " + existingBooks + " books, but " + numberOfBooks + " were expected"
+				);
+			}
+
+			insertAuthors( session );
+			insertBooks( session );
+			return true;
+		}
+		finally {
+			session.close();
+		}
+	}
+
+	private void insertAuthors(Session session) {
+		for ( int start = 1; start <= numberOfAuthors; start += ROWS_PER_TRANSACTION ) {
+			final int first = start;
+			final int last = Math.min( start + ROWS_PER_TRANSACTION - 1, numberOfAuthors );
+			doInTransaction(
+					session, new Work() {
+						@Override
+						public void execute(Connection connection) throws SQLException {
+							PreparedStatement statement = connection.prepareStatement(
+									"insert into Author (id, name) values (?, ?)"
+							);
+							try {
+								for ( int id = first; id <= last; id++ ) {
+									statement.setInt( 1, id );
+									statement.setString( 2, authorName( id ) );
+									statement.addBatch();
+								}
+								statement.executeBatch();
+							}
+							finally {
+								statement.close();
+							}
+						}
+					}
+			);
+		}
+	}
+
+	private void insertBooks(Session session) {
+		final Random random = new Random( SEED );
+		final ZipfDistribution authorsPerBook = new ZipfDistribution( maxAuthorsPerBook, authorsPerBookExponent );
+		final ZipfDistribution authors = new ZipfDistribution( numberOfAuthors, booksPerAuthorExponent );
+		final ZipfDistribution titleWords = new ZipfDistribution( TITLE_VOCABULARY_SIZE, TITLE_VOCABULARY_EXPONENT );
+		final ZipfDistribution publishers = new ZipfDistribution( NUMBER_OF_PUBLISHERS, PUBLISHER_EXPONENT );
+
+		for ( int start = 1; start <= numberOfBooks; start += ROWS_PER_TRANSACTION ) {
+			final int first = start;
+			final int last = Math.min( start + ROWS_PER_TRANSACTION - 1, numberOfBooks );
+			doInTransaction(
+					session, new Work() {
+						@Override
+						public void execute(Connection connection) throws SQLException {
+							PreparedStatement bookStatement = connection.prepareStatement(
+									"insert into Book (id, isbn, publisher, title) values (?, ?, ?, ?)"
+							);
+							PreparedStatement bookAuthorStatement = connection.prepareStatement(
+									"insert into Book_Author (Book_id, authors_id) values (?, ?)"
+							);
+							try {
+								int[] bookAuthors = new int[maxAuthorsPerBook];
+								for ( int id = first; id <= last; id++ ) {
+									bookStatement.setInt( 1, id );
+									bookStatement.setString( 2, isbn( id ) );
+									bookStatement.setString( 3, publisherName( publishers.sample( random ) ) );
+									bookStatement.setString( 4, title( titleWords, random ) );
+									bookStatement.addBatch();
+
+									int count = drawDistinctAuthors(
+											authorsPerBook.sample( random ), authors, random, bookAuthors
+									);
+									for ( int i = 0; i < count; i++ ) {
+										bookAuthorStatement.setInt( 1, id );
+										bookAuthorStatement.setInt( 2, bookAuthors[i] );
+										bookAuthorStatement.addBatch();
+									}
+								}
+								bookStatement.executeBatch();
+								bookAuthorStatement.executeBatch();
+							}
+							finally {
+								bookStatement.close();
+								bookAuthorStatement.close();
+							}
+						}
+					}
+			);
+		}
+	}
+
+	private void doInTransaction(Session session, Work work) {
+		Transaction transaction = session.beginTransaction();
+		session.doWork( work );
+		transaction.commit();
+	}
+
+	private static int drawDistinctAuthors(int wanted, ZipfDistribution authors, Random random, int[] result) {
+		int count = 0;
+		int attempts = 0;
+		while ( count < wanted && attempts < wanted * 10 ) {
+			attempts++;
+			int author = authors.sample( random );
+			boolean duplicate = false;
+			for ( int i = 0; i < count; i++ ) {
+				if ( result[i] == author ) {
+					duplicate = true;
+					break;
+				}
+			}
+			if ( !duplicate ) {
+				result[count++] = author;
+			}
+		}
+		return count;
+	}
+
+	private static String title(ZipfDistribution titleWords, Random random) {
+		int numberOfWords = MIN_TITLE_WORDS + random.nextInt( MAX_TITLE_WORDS - MIN_TITLE_WORDS + 1 );
+		StringBuilder title = new StringBuilder();
+		for ( int i = 0; i < numberOfWords; i++ ) {
+			if ( i > 0 ) {
+				title.append( ' ' );
+			}
+			String word = word( titleWords.sample( random ) );
+			title.append( i == 0 ? capitalize( word ) : word );
+		}
+		return title.toString();
+	}
+
+	private static String isbn(int bookId) {
+		return String.format( Locale.ENGLISH, "978%010d", bookId );
+	}
+
+	public static String authorName(int authorId) {
+		return capitalize( word( authorId ) ) + ", "
+				+ FIRST_NAMES[authorId % FIRST_NAMES.length] + " "
+				+ (char) ( 'A' + ( authorId / FIRST_NAMES.length ) % 26 ) + ".";
+	}
+
+	public static String publisherName(int publisherId) {
+		return capitalize( word( publisherId ) ) + " Press";
+	}
+
+	/**
+	 * Encodes the given number in base {@code CONSONANTS.length * VOWELS.length}, each digit being a
+	 * consonant-vowel syllable. Distinct numbers yield distinct, pronounceable words of at least two syllables.
+	 */
+	private static String word(int number) {
+		int syllables = CONSONANTS.length * VOWELS.length;
+		long n = (long) number + syllables;
+		StringBuilder word = new StringBuilder();
+		while ( n > 0 ) {
+			int syllable = (int) ( n % syllables );
+			word.insert( 0, CONSONANTS[syllable / VOWELS.length] + VOWELS[syllable % VOWELS.length] );
+			n /= syllables;
+		}
+		return word.toString();
+	}
+
+	private static String capitalize(String word) {
+		return Character.toUpperCase( word.charAt( 0 ) ) + word.substring( 1 );
+	}
+}
@@ -0,0 +1,51 @@
+package org.hibernate.search.test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Zipf distributed random numbers in the range {@code [1, n]}. Rank {@code k} is drawn with a probability
+ * proportional to {@code 1 / k^exponent}, so an exponent of 0 yields a uniform distribution and larger
+ * exponents concentrate more and more of the samples on the first ranks.
+ * <p>
+ * The cumulative distribution is pre-computed, sampling is a binary search over it.
+ */
+public class ZipfDistribution {
+	private final double[] cumulativeProbabilities;
+
+	public ZipfDistribution(int n, double exponent) {
+		if ( n < 1 ) {
+			throw new IllegalArgumentException( "The number of elements must be positive: " + n );
+		}
+		if ( exponent < 0 ) {
+			throw new IllegalArgumentException( "The exponent must not be negative: " + exponent );
+		}
+
+		cumulativeProbabilities = new double[n];
+		double sum = 0;
+		for ( int rank = 1; rank <= n; rank++ ) {
+			sum += 1 / Math.pow( rank, exponent );
+			cumulativeProbabilities[rank - 1] = sum;
+		}
+		for ( int i = 0; i < n; i++ ) {
+			cumulativeProbabilities[i] /= sum;
+		}
+	}
+
+	public int getNumberOfElements() {
+		return cumulativeProbabilities.length;
+	}
+
+	/**
+	 * @param random the source of randomness
+	 *
+	 * @return a rank between 1 and {@link #getNumberOfElements()} (inclusive)
+	 */
+	public int sample(Random random) {
+		int index = Arrays.binarySearch( cumulativeProbabilities, random.nextDouble() );
+		if ( index < 0 ) {
+			index = -index - 1;
+		}
+		return Math.min( index, cumulativeProbabilities.length - 1 ) + 1;
+	}
+}
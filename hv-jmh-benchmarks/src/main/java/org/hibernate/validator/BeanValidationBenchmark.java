@@ -0,0 +1,212 @@
+/*
+ * Copyright (c) 2005, 2014, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+package org.hibernate.validator;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.OffsetDateTime;
+import java.time.ZonedDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import javax.validation.ConstraintViolation;
+import javax.validation.Validation;
+import javax.validation.Validator;
+import javax.validation.ValidatorFactory;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Validates beans through Hibernate Validator, all threads sharing one {@link Validator}: a flat {@link Address},
+ * a {@link Customer} with more than 20 constraints, and an {@link Order} cascading to its customer and
+ * {@value Order#MAX_LINES} lines. {@code validateProperty} validates a single property of the customer.
+ * <p>
+ * With {@code beans} set to {@code invalid}, some constraints of each bean are violated, every
+ * {@value #INVALID_LINE_INTERVAL}th order line among them. Compare {@code failFast} to see how much stopping at the
+ * first violation saves. Run with {@code -prof gc} for the allocations per validation, {@link #main(String[])} runs
+ * 1 up to 2 x cores threads with it.
+ */
+@BenchmarkMode(Mode.Throughput)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@SuppressWarnings("unused")
+public class BeanValidationBenchmark {
+	private static final int INVALID_LINE_INTERVAL = 100;
+	private static final int INVALID_ADDRESS_VIOLATIONS = 1;
+	private static final int INVALID_CUSTOMER_VIOLATIONS = 3 + INVALID_ADDRESS_VIOLATIONS;
+	private static final int INVALID_ORDER_VIOLATIONS = INVALID_CUSTOMER_VIOLATIONS
+			+ Order.MAX_LINES / INVALID_LINE_INTERVAL;
+
+	// State class to hold the validator shared by all threads and the beans to validate
+	@State(Scope.Benchmark)
+	public static class Engine {
+		@Param({ "false", "true" })
+		public boolean failFast;
+
+		@Param({ "valid", "invalid" })
+		public String beans;
+
+		ValidatorFactory validatorFactory;
+		Validator validator;
+		Address address;
+		Customer customer;
+		Order order;
+
+		@Setup
+		public void setUp() {
+			validatorFactory = Validation.byProvider( HibernateValidator.class )
+					.configure()
+					.failFast( failFast )
+					.buildValidatorFactory();
+			validator = validatorFactory.getValidator();
+
+			boolean valid = "valid".equals( beans );
+			address = createAddress( valid );
+			customer = createCustomer( valid );
+			order = createOrder( valid );
+			assertViolations( address, INVALID_ADDRESS_VIOLATIONS );
+			assertViolations( customer, INVALID_CUSTOMER_VIOLATIONS );
+			assertViolations( order, INVALID_ORDER_VIOLATIONS );
+		}
+
+		@TearDown
+		public void tearDown() {
+			validatorFactory.close();
+		}
+
+		private void assertViolations(Object bean, int invalidViolations) {
+			int expected = "valid".equals( beans ) ? 0 : failFast ? 1 : invalidViolations;
+			Set<ConstraintViolation<Object>> violations = validator.validate( bean );
+			if ( violations.size() != expected ) {
+				throw new IllegalStateException(
+						"Expected " + expected + " violations of " + bean.getClass().getSimpleName() + ", got "
+								+ violations
+				);
+			}
+		}
+	}
+
+	@Benchmark
+	public Set<ConstraintViolation<Address>> validateFlatBean(Engine engine) {
+		return engine.validator.validate( engine.address );
+	}
+
+	@Benchmark
+	public Set<ConstraintViolation<Customer>> validateConstrainedBean(Engine engine) {
+		return engine.validator.validate( engine.customer );
+	}
+
+	@Benchmark
+	public Set<ConstraintViolation<Order>> validateCascadedGraph(Engine engine) {
+		return engine.validator.validate( engine.order );
+	}
+
+	@Benchmark
+	public Set<ConstraintViolation<Customer>> validateProperty(Engine engine) {
+		return engine.validator.validateProperty( engine.customer, "email" );
+	}
+
+	private static Address createAddress(boolean valid) {
+		return new Address( "1 Main Street", "Springfield", valid ? "12345" : "1234A", "US" );
+	}
+
+	private static Customer createCustomer(boolean valid) {
+		Customer customer = new Customer();
+		customer.firstName = "Jane";
+		customer.lastName = "Doe";
+		customer.userName = "jdoe";
+		customer.email = valid ? "jane.doe@example.com" : "jane.doe@";
+		customer.phone = "+1 555 0100";
+		customer.website = valid ? "http://www.example.com/~jdoe" : "htp://www.example.com/~jdoe";
+		customer.birthDate = LocalDate.now().minusYears( 30 );
+		customer.registeredAt = Instant.now().minus( 1000, ChronoUnit.DAYS );
+		customer.age = valid ? 30 : 12;
+		customer.loyaltyPoints = 1250;
+		customer.creditLimit = new BigDecimal( "2500.00" );
+		customer.vatId = "DE123456789";
+		customer.locale = Locale.US;
+		customer.billingAddress = createAddress( valid );
+		customer.shippingAddress = createAddress( true );
+		return customer;
+	}
+
+	private static Order createOrder(boolean valid) {
+		List<OrderLine> lines = new ArrayList<>( Order.MAX_LINES );
+		Instant now = Instant.now();
+		for ( int i = 0; i < Order.MAX_LINES; i++ ) {
+			boolean validLine = valid || ( i + 1 ) % INVALID_LINE_INTERVAL != 0;
+			lines.add(
+					new OrderLine(
+							String.format( "SKU-%06d", i ),
+							1 + i % 5,
+							new BigDecimal( "9.99" ),
+							( validLine ? "http://shop.example.com/products/" : "shop.example.com/products/" ) + i,
+							now.minus( i + 1, ChronoUnit.MINUTES ),
+							LocalDate.now().plusDays( 30 )
+					)
+			);
+		}
+		return new Order(
+				OffsetDateTime.now().minusHours( 1 ),
+				ZonedDateTime.now().plusDays( 3 ),
+				createCustomer( valid ),
+				lines
+		);
+	}
+
+	public static void main(String[] args) throws Exception {
+		int maxThreads = 2 * Runtime.getRuntime().availableProcessors();
+		for ( int threads = 1; threads <= maxThreads; threads *= 2 ) {
+			Options opt = new OptionsBuilder()
+					.include( ".*" + BeanValidationBenchmark.class.getSimpleName() + ".*" )
+					.addProfiler( GCProfiler.class )
+					.threads( threads )
+					.build();
+			new Runner( opt ).run();
+		}
+	}
+}
@@ -0,0 +1,133 @@
+/*
+ * Copyright (c) 2005, 2014, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+package org.hibernate.validator;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.OffsetDateTime;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A coarse time source for the {@code @Past} and {@code @Future} checks. A background thread replaces the current
+ * {@link Now} every {@code granularity}, so reading the time is a volatile read instead of a system call and the
+ * allocation of the {@code java.time} values. In exchange the time lags behind by up to one granularity, values
+ * closer to the current time than that may be judged wrongly.
+ */
+public class CachedClock implements AutoCloseable {
+	private final Clock clock;
+	private final ScheduledExecutorService ticker;
+	private volatile Now now;
+
+	/**
+	 * @param zone the zone of the local, offset and zoned current times
+	 * @param granularity the interval between two ticks
+	 * @param unit the unit of {@code granularity}
+	 */
+	public CachedClock(ZoneId zone, long granularity, TimeUnit unit) {
+		if ( granularity < 1 ) {
+			throw new IllegalArgumentException( "The granularity must be positive" );
+		}
+		this.clock = Clock.system( zone );
+		this.now = Now.of( clock );
+		this.ticker = Executors.newSingleThreadScheduledExecutor(
+				runnable -> {
+					Thread thread = new Thread( runnable, "cached-clock-ticker" );
+					thread.setDaemon( true );
+					return thread;
+				}
+		);
+		ticker.scheduleAtFixedRate( () -> now = Now.of( clock ), granularity, granularity, unit );
+	}
+
+	/**
+	 * @return the current time as of the last tick
+	 */
+	public Now now() {
+		return now;
+	}
+
+	public long millis() {
+		return now.millis;
+	}
+
+	public ZoneId getZone() {
+		return clock.getZone();
+	}
+
+	@Override
+	public void close() {
+		ticker.shutdownNow();
+	}
+
+	/**
+	 * The current time in all the representations compared against, captured at once. Besides the ticks of a
+	 * {@link CachedClock}, {@link #of(Clock)} can capture it once per validated bean or collection.
+	 */
+	public static final class Now {
+		private final long millis;
+		private final Instant instant;
+		private final LocalDate localDate;
+		private final OffsetDateTime offsetDateTime;
+		private final ZonedDateTime zonedDateTime;
+
+		private Now(Instant instant, ZoneId zone) {
+			this.millis = instant.toEpochMilli();
+			this.instant = instant;
+			this.zonedDateTime = ZonedDateTime.ofInstant( instant, zone );
+			this.offsetDateTime = zonedDateTime.toOffsetDateTime();
+			this.localDate = zonedDateTime.toLocalDate();
+		}
+
+		public static Now of(Clock clock) {
+			return new Now( clock.instant(), clock.getZone() );
+		}
+
+		public long getMillis() {
+			return millis;
+		}
+
+		public Instant getInstant() {
+			return instant;
+		}
+
+		public LocalDate getLocalDate() {
+			return localDate;
+		}
+
+		public OffsetDateTime getOffsetDateTime() {
+			return offsetDateTime;
+		}
+
+		public ZonedDateTime getZonedDateTime() {
+			return zonedDateTime;
+		}
+	}
+}
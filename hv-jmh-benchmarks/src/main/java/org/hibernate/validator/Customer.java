@@ -0,0 +1,110 @@
+/*
+ * Copyright (c) 2005, 2014, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+package org.hibernate.validator;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.Locale;
+import javax.validation.Valid;
+import javax.validation.constraints.DecimalMax;
+import javax.validation.constraints.DecimalMin;
+import javax.validation.constraints.Digits;
+import javax.validation.constraints.Email;
+import javax.validation.constraints.Max;
+import javax.validation.constraints.Min;
+import javax.validation.constraints.NotBlank;
+import javax.validation.constraints.NotNull;
+import javax.validation.constraints.Past;
+import javax.validation.constraints.Pattern;
+import javax.validation.constraints.PositiveOrZero;
+import javax.validation.constraints.Size;
+
+import org.hibernate.validator.constraints.Length;
+import org.hibernate.validator.constraints.URL;
+
+/**
+ * A bean with more than 20 constraints of different kinds, cascading to its billing and shipping {@link Address}.
+ * The fields are set directly, the getters would only add noise to the benchmark.
+ */
+public class Customer {
+	@NotBlank
+	@Size(max = 50)
+	String firstName;
+
+	@NotBlank
+	@Size(max = 50)
+	String lastName;
+
+	@NotBlank
+	@Length(min = 3, max = 20)
+	@Pattern(regexp = "[a-z][a-z0-9_]*")
+	String userName;
+
+	@NotNull
+	@Email
+	String email;
+
+	@Pattern(regexp = "\\+?[0-9 ]{6,20}")
+	String phone;
+
+	@URL
+	String website;
+
+	@NotNull
+	@Past
+	LocalDate birthDate;
+
+	@NotNull
+	@Past
+	Instant registeredAt;
+
+	@Min(18)
+	@Max(150)
+	int age;
+
+	@PositiveOrZero
+	long loyaltyPoints;
+
+	@NotNull
+	@DecimalMin("0.00")
+	@DecimalMax("100000.00")
+	@Digits(integer = 6, fraction = 2)
+	BigDecimal creditLimit;
+
+	@Pattern(regexp = "[A-Z]{2}[0-9A-Z]{2,12}")
+	String vatId;
+
+	@NotNull
+	Locale locale;
+
+	@NotNull
+	@Valid
+	Address billingAddress;
+
+	@Valid
+	Address shippingAddress;
+}
@@ -25,6 +25,12 @@
 
 package org.hibernate.validator;
 
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.OffsetDateTime;
+import java.time.ZonedDateTime;
+import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
 import java.util.Calendar;
 import java.util.Date;
@@ -38,20 +44,36 @@ import org.openjdk.jmh.annotations.Measurement;
 import org.openjdk.jmh.annotations.Mode;
 import org.openjdk.jmh.annotations.OperationsPerInvocation;
 import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
 import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
 import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
 import org.openjdk.jmh.annotations.Warmup;
 import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.profile.GCProfiler;
 import org.openjdk.jmh.runner.Runner;
 import org.openjdk.jmh.runner.options.Options;
 import org.openjdk.jmh.runner.options.OptionsBuilder;
 
+/**
+ * Checks whether dates are in the future, the way {@code @Past} and {@code @Future} do. {@code compareBySystemTime}
+ * and {@code compareByCalendar} cover {@code java.util.Date}, the {@code compareTemporal} benchmarks each
+ * {@link TemporalType}: {@code compareTemporalBySystemTime} reads the system clock for each value,
+ * {@code compareTemporalByCachedClock} reads a {@link CachedClock} ticking every {@code granularityMillis} and
+ * {@code compareTemporalByBatchNow} captures the current time once for all the values, as a validator could do once
+ * per bean or collection. Run with {@code -prof gc} to see the allocations, {@link #main(String[])} runs 1 up to
+ * 2 x cores threads with it.
+ */
 @BenchmarkMode(Mode.AverageTime)
 @Warmup(iterations = 1)
 @Measurement(iterations = 10)
 @OutputTimeUnit(TimeUnit.NANOSECONDS)
 @SuppressWarnings("unused")
 public class DateConstraintBenchmark {
+	private static final int PAST_AND_FUTURE_DAYS = 100;
+	private static final int VALUES = 2 * PAST_AND_FUTURE_DAYS + 1;
+	private static final Clock SYSTEM_CLOCK = Clock.systemDefaultZone();
 
 	// State class to hold the test dates
 	@State(Scope.Benchmark)
@@ -72,6 +94,65 @@ public class DateConstraintBenchmark {
 		}
 	}
 
+	// State class to hold the test values of one temporal type, now and the days before and after
+	@State(Scope.Benchmark)
+	public static class TemporalHolder {
+		@Param({ "DATE", "INSTANT", "LOCAL_DATE", "OFFSET_DATE_TIME", "ZONED_DATE_TIME" })
+		public String type;
+
+		TemporalType temporalType;
+		Object[] values;
+
+		@Setup
+		public void setUp() {
+			temporalType = TemporalType.valueOf( type );
+			ZonedDateTime now = ZonedDateTime.now( SYSTEM_CLOCK );
+			values = new Object[VALUES];
+			values[0] = temporalType.valueOf( now );
+			for ( int i = 1; i <= PAST_AND_FUTURE_DAYS; i++ ) {
+				values[i] = temporalType.valueOf( now.minus( i, ChronoUnit.DAYS ) );
+				values[PAST_AND_FUTURE_DAYS + i] = temporalType.valueOf( now.plus( i, ChronoUnit.DAYS ) );
+			}
+			assertFutureValues();
+		}
+
+		// the current value is left out, each way of getting the current time may judge it differently
+		private void assertFutureValues() {
+			CachedClock.Now batchNow = CachedClock.Now.of( SYSTEM_CLOCK );
+			for ( int i = 1; i < values.length; i++ ) {
+				boolean future = i > PAST_AND_FUTURE_DAYS;
+				if ( temporalType.isFuture( values[i] ) != future
+						|| temporalType.isFuture( values[i], batchNow ) != future ) {
+					throw new IllegalStateException( "Wrong check of " + values[i] );
+				}
+			}
+		}
+	}
+
+	// State class to hold a cached clock ticking every granularityMillis
+	@State(Scope.Benchmark)
+	public static class CachedClockHolder {
+		@Param({ "1", "10" })
+		public long granularityMillis;
+
+		CachedClock clock;
+
+		@Setup
+		public void setUp() throws InterruptedException {
+			clock = new CachedClock( SYSTEM_CLOCK.getZone(), granularityMillis, TimeUnit.MILLISECONDS );
+			long start = clock.millis();
+			Thread.sleep( 10 * granularityMillis );
+			if ( clock.millis() == start ) {
+				throw new IllegalStateException( "The cached clock does not tick" );
+			}
+		}
+
+		@TearDown
+		public void tearDown() {
+			clock.close();
+		}
+	}
+
 	@State(Scope.Benchmark)
 	public static class CompareBySystemTime {
 		public boolean isBefore(Date date) {
@@ -105,10 +186,141 @@ public class DateConstraintBenchmark {
 		}
 	}
 
+	@Benchmark
+	@Fork(1)
+	@OperationsPerInvocation(VALUES)
+	public void compareTemporalBySystemTime(TemporalHolder holder, Blackhole blackhole) {
+		TemporalType temporalType = holder.temporalType;
+		for ( Object value : holder.values ) {
+			blackhole.consume( temporalType.isFuture( value ) );
+		}
+	}
+
+	@Benchmark
+	@Fork(1)
+	@OperationsPerInvocation(VALUES)
+	public void compareTemporalByCachedClock(TemporalHolder holder, CachedClockHolder clockHolder,
+			Blackhole blackhole) {
+		TemporalType temporalType = holder.temporalType;
+		CachedClock clock = clockHolder.clock;
+		for ( Object value : holder.values ) {
+			blackhole.consume( temporalType.isFuture( value, clock.now() ) );
+		}
+	}
+
+	@Benchmark
+	@Fork(1)
+	@OperationsPerInvocation(VALUES)
+	public void compareTemporalByBatchNow(TemporalHolder holder, Blackhole blackhole) {
+		TemporalType temporalType = holder.temporalType;
+		CachedClock.Now now = CachedClock.Now.of( SYSTEM_CLOCK );
+		for ( Object value : holder.values ) {
+			blackhole.consume( temporalType.isFuture( value, now ) );
+		}
+	}
+
+	/**
+	 * The types supported by {@code @Past} and {@code @Future}, each checked against the system clock like the
+	 * validators do, or against a captured {@link CachedClock.Now}.
+	 */
+	enum TemporalType {
+		DATE {
+			@Override
+			Object valueOf(ZonedDateTime dateTime) {
+				return Date.from( dateTime.toInstant() );
+			}
+
+			@Override
+			boolean isFuture(Object value) {
+				return ( (Date) value ).getTime() > System.currentTimeMillis();
+			}
+
+			@Override
+			boolean isFuture(Object value, CachedClock.Now now) {
+				return ( (Date) value ).getTime() > now.getMillis();
+			}
+		},
+		INSTANT {
+			@Override
+			Object valueOf(ZonedDateTime dateTime) {
+				return dateTime.toInstant();
+			}
+
+			@Override
+			boolean isFuture(Object value) {
+				return ( (Instant) value ).isAfter( Instant.now( SYSTEM_CLOCK ) );
+			}
+
+			@Override
+			boolean isFuture(Object value, CachedClock.Now now) {
+				return ( (Instant) value ).isAfter( now.getInstant() );
+			}
+		},
+		LOCAL_DATE {
+			@Override
+			Object valueOf(ZonedDateTime dateTime) {
+				return dateTime.toLocalDate();
+			}
+
+			@Override
+			boolean isFuture(Object value) {
+				return ( (LocalDate) value ).isAfter( LocalDate.now( SYSTEM_CLOCK ) );
+			}
+
+			@Override
+			boolean isFuture(Object value, CachedClock.Now now) {
+				return ( (LocalDate) value ).isAfter( now.getLocalDate() );
+			}
+		},
+		OFFSET_DATE_TIME {
+			@Override
+			Object valueOf(ZonedDateTime dateTime) {
+				return dateTime.toOffsetDateTime();
+			}
+
+			@Override
+			boolean isFuture(Object value) {
+				return ( (OffsetDateTime) value ).isAfter( OffsetDateTime.now( SYSTEM_CLOCK ) );
+			}
+
+			@Override
+			boolean isFuture(Object value, CachedClock.Now now) {
+				return ( (OffsetDateTime) value ).isAfter( now.getOffsetDateTime() );
+			}
+		},
+		ZONED_DATE_TIME {
+			@Override
+			Object valueOf(ZonedDateTime dateTime) {
+				return dateTime;
+			}
+
+			@Override
+			boolean isFuture(Object value) {
+				return ( (ZonedDateTime) value ).isAfter( ZonedDateTime.now( SYSTEM_CLOCK ) );
+			}
+
+			@Override
+			boolean isFuture(Object value, CachedClock.Now now) {
+				return ( (ZonedDateTime) value ).isAfter( now.getZonedDateTime() );
+			}
+		};
+
+		abstract Object valueOf(ZonedDateTime dateTime);
+
+		abstract boolean isFuture(Object value);
+
+		abstract boolean isFuture(Object value, CachedClock.Now now);
+	}
+
 	public static void main(String[] args) throws Exception {
-		Options opt = new OptionsBuilder()
-				.include( ".*" + DateConstraintBenchmark.class.getSimpleName() + ".*" )
-				.build();
-		new Runner( opt ).run();
+		int maxThreads = 2 * Runtime.getRuntime().availableProcessors();
+		for ( int threads = 1; threads <= maxThreads; threads *= 2 ) {
+			Options opt = new OptionsBuilder()
+					.include( ".*" + DateConstraintBenchmark.class.getSimpleName() + ".*" )
+					.addProfiler( GCProfiler.class )
+					.threads( threads )
+					.build();
+			new Runner( opt ).run();
+		}
 	}
 }
@@ -0,0 +1,151 @@
+/*
+ * Copyright (c) 2005, 2014, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+
+package org.hibernate.validator;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Predicate;
+
+/**
+ * Caches the results of a validator for strings, e.g. URLs validated again and again. The cache is split into a
+ * power of two number of segments, each an LRU map guarded by its own lock, so threads only contend when their keys
+ * fall into the same segment. Each segment holds at most its share of {@code maxEntries}, the least recently used
+ * entry is evicted when a segment is full.
+ * <p>
+ * Keys longer than {@code maxKeyLength} are validated without being cached, so that large inputs can neither fill
+ * the cache nor evict the frequent entries. The validator is called outside the lock, concurrent misses of the same
+ * key validate it several times.
+ */
+public class MemoizingValidator {
+	private final Predicate<String> validator;
+	private final int maxKeyLength;
+	private final Segment[] segments;
+
+	private final LongAdder hits = new LongAdder();
+	private final LongAdder misses = new LongAdder();
+	private final LongAdder uncachedKeys = new LongAdder();
+
+	/**
+	 * @param validator the validator whose results are cached
+	 * @param maxEntries the maximum number of cached results
+	 * @param maxKeyLength the maximum length of cached keys
+	 * @param concurrencyLevel the expected number of concurrent threads, rounded up to a power of two segments
+	 */
+	public MemoizingValidator(Predicate<String> validator, int maxEntries, int maxKeyLength, int concurrencyLevel) {
+		if ( maxEntries < 1 || concurrencyLevel < 1 ) {
+			throw new IllegalArgumentException( "The number of entries and the concurrency level must be positive" );
+		}
+		this.validator = validator;
+		this.maxKeyLength = maxKeyLength;
+		int segmentCount = Integer.highestOneBit( Math.min( concurrencyLevel, maxEntries ) * 2 - 1 );
+		this.segments = new Segment[segmentCount];
+		for ( int i = 0; i < segmentCount; i++ ) {
+			segments[i] = new Segment( Math.max( 1, maxEntries / segmentCount ) );
+		}
+	}
+
+	public boolean isValid(String value) {
+		if ( value.length() > maxKeyLength ) {
+			uncachedKeys.increment();
+			return validator.test( value );
+		}
+		Segment segment = segmentFor( value );
+		Boolean cached;
+		synchronized ( segment ) {
+			cached = segment.get( value );
+		}
+		if ( cached != null ) {
+			hits.increment();
+			return cached;
+		}
+		misses.increment();
+		boolean valid = validator.test( value );
+		synchronized ( segment ) {
+			segment.put( value, valid );
+		}
+		return valid;
+	}
+
+	public long getHits() {
+		return hits.sum();
+	}
+
+	public long getMisses() {
+		return misses.sum();
+	}
+
+	public long getEvictions() {
+		long evictions = 0;
+		for ( Segment segment : segments ) {
+			evictions += segment.evictions.sum();
+		}
+		return evictions;
+	}
+
+	/**
+	 * @return the number of keys validated without the cache due to their length
+	 */
+	public long getUncachedKeys() {
+		return uncachedKeys.sum();
+	}
+
+	public void resetStatistics() {
+		hits.reset();
+		misses.reset();
+		uncachedKeys.reset();
+		for ( Segment segment : segments ) {
+			segment.evictions.reset();
+		}
+	}
+
+	private Segment segmentFor(String value) {
+		int hash = value.hashCode();
+		return segments[( hash ^ ( hash >>> 16 ) ) & ( segments.length - 1 )];
+	}
+
+	private static class Segment extends LinkedHashMap<String, Boolean> {
+		private static final long serialVersionUID = 1L;
+
+		private final int maxEntries;
+		private final LongAdder evictions = new LongAdder();
+
+		private Segment(int maxEntries) {
+			super( 16, 0.75f, true );
+			this.maxEntries = maxEntries;
+		}
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<String, Boolean> eldest) {
+			if ( size() > maxEntries ) {
+				evictions.increment();
+				return true;
+			}
+			return false;
+		}
+	}
+}
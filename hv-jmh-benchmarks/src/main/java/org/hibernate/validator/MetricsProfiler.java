@@ -0,0 +1,115 @@
+/*
+ * Copyright (c) 2005, 2014, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package org.hibernate.validator;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.openjdk.jmh.infra.BenchmarkParams;
+import org.openjdk.jmh.infra.IterationParams;
+import org.openjdk.jmh.profile.InternalProfiler;
+import org.openjdk.jmh.profile.ProfilerResult;
+import org.openjdk.jmh.results.AggregationPolicy;
+import org.openjdk.jmh.results.IterationResult;
+import org.openjdk.jmh.results.Result;
+
+/**
+ * Reports gauges set by the benchmarks themselves as secondary results, e.g. the hit ratio of a cache. A gauge keeps
+ * its value until the end of the trial and is reported after each iteration. Enable it with {@code -prof metrics},
+ * without it the gauges are dropped.
+ */
+public class MetricsProfiler implements InternalProfiler {
+	private static final Map<String, Gauge> gauges = new TreeMap<>();
+	private static volatile boolean enabled;
+	private static BenchmarkParams currentBenchmark;
+
+	public static void gauge(String label, double value, String unit) {
+		if ( enabled ) {
+			synchronized ( gauges ) {
+				gauges.put( label, new Gauge( value, unit ) );
+			}
+		}
+	}
+
+	@Override
+	public boolean checkSupport(List<String> msgs) {
+		return true;
+	}
+
+	@Override
+	public String label() {
+		return "metrics";
+	}
+
+	@Override
+	public String getDescription() {
+		return "Gauges set by the benchmarks";
+	}
+
+	@Override
+	public void beforeIteration(BenchmarkParams benchmarkParams, IterationParams iterationParams) {
+		// without forking, the trials share this VM
+		synchronized ( gauges ) {
+			if ( benchmarkParams != currentBenchmark ) {
+				gauges.clear();
+				currentBenchmark = benchmarkParams;
+			}
+		}
+		enabled = true;
+	}
+
+	@Override
+	public Collection<? extends Result> afterIteration(BenchmarkParams benchmarkParams,
+			IterationParams iterationParams,
+			IterationResult result) {
+		List<Result> results = new ArrayList<>();
+		synchronized ( gauges ) {
+			for ( Map.Entry<String, Gauge> gauge : gauges.entrySet() ) {
+				results.add(
+						new ProfilerResult(
+								"·" + gauge.getKey(),
+								gauge.getValue().value,
+								gauge.getValue().unit,
+								AggregationPolicy.AVG
+						)
+				);
+			}
+		}
+		return results;
+	}
+
+	private static class Gauge {
+		private final double value;
+		private final String unit;
+
+		private Gauge(double value, String unit) {
+			this.value = value;
+			this.unit = unit;
+		}
+	}
+}
@@ -0,0 +1,66 @@
+/*
+ * Copyright (c) 2005, 2014, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+package org.hibernate.validator;
+
+import java.time.OffsetDateTime;
+import java.time.ZonedDateTime;
+import java.util.List;
+import javax.validation.Valid;
+import javax.validation.constraints.Future;
+import javax.validation.constraints.NotNull;
+import javax.validation.constraints.Past;
+import javax.validation.constraints.Size;
+
+/**
+ * The root of a cascaded graph: a {@link Customer} with its addresses and up to {@value #MAX_LINES}
+ * {@link OrderLine}s.
+ */
+public class Order {
+	public static final int MAX_LINES = 1000;
+
+	@NotNull
+	@Past
+	OffsetDateTime placedAt;
+
+	@Future
+	ZonedDateTime deliveryDate;
+
+	@NotNull
+	@Valid
+	Customer customer;
+
+	@NotNull
+	@Size(min = 1, max = MAX_LINES)
+	@Valid
+	List<OrderLine> lines;
+
+	public Order(OffsetDateTime placedAt, ZonedDateTime deliveryDate, Customer customer, List<OrderLine> lines) {
+		this.placedAt = placedAt;
+		this.deliveryDate = deliveryDate;
+		this.customer = customer;
+		this.lines = lines;
+	}
+}
@@ -0,0 +1,75 @@
+/*
+ * Copyright (c) 2005, 2014, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+package org.hibernate.validator;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.LocalDate;
+import javax.validation.constraints.DecimalMin;
+import javax.validation.constraints.Future;
+import javax.validation.constraints.Min;
+import javax.validation.constraints.NotNull;
+import javax.validation.constraints.Past;
+import javax.validation.constraints.Size;
+
+import org.hibernate.validator.constraints.URL;
+
+/**
+ * An element of the lines of an {@link Order}, using the URL and date constraints.
+ */
+public class OrderLine {
+	@NotNull
+	@Size(min = 8, max = 16)
+	String sku;
+
+	@Min(1)
+	int quantity;
+
+	@NotNull
+	@DecimalMin("0.01")
+	BigDecimal price;
+
+	@NotNull
+	@URL
+	String productPage;
+
+	@NotNull
+	@Past
+	Instant addedAt;
+
+	@Future
+	LocalDate availableUntil;
+
+	public OrderLine(String sku, int quantity, BigDecimal price, String productPage, Instant addedAt,
+			LocalDate availableUntil) {
+		this.sku = sku;
+		this.quantity = quantity;
+		this.price = price;
+		this.productPage = productPage;
+		this.addedAt = addedAt;
+		this.availableUntil = availableUntil;
+	}
+}
@@ -0,0 +1,182 @@
+/*
+ * Copyright (c) 2005, 2014, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+
+package org.hibernate.validator;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Validates a {@link URLCorpus} in batches of {@value #BATCH_SIZE} URLs, so the score is in URLs per second. The
+ * {@code bytes} counter reports the validated bytes per second. Run with {@code -t} to compare
+ * the scaling of the regular expression of {@link URLConstraintBenchmark}, either resetting one {@code Matcher} per
+ * thread or creating a new one per URL, and of the {@link URLScanner}. {@link #main(String[])} runs 1 up to 2 x cores
+ * threads.
+ */
+@BenchmarkMode(Mode.Throughput)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@SuppressWarnings("unused")
+public class URLBatchValidationBenchmark {
+	private static final int BATCH_SIZE = 1000;
+	private static final int CORPUS_SIZE = 100 * BATCH_SIZE;
+
+	@State(Scope.Benchmark)
+	public static class Corpus {
+		/**
+		 * Either {@code generated} or a file with one URL per line. Only whole batches of the file are used.
+		 */
+		@Param("generated")
+		String urlSource;
+
+		/**
+		 * The share of valid URLs if they are generated.
+		 */
+		@Param({ "0.9", "0.5" })
+		double validRatio;
+
+		String[] urls;
+		long[] batchBytes;
+		AtomicInteger threads = new AtomicInteger();
+
+		@Setup
+		public void setUp() throws Exception {
+			URLCorpus corpus = "generated".equals( urlSource )
+					? URLCorpus.generate( CORPUS_SIZE, validRatio, 42L )
+					: URLCorpus.load( urlSource );
+			urls = corpus.getUrls();
+			if ( urls.length < BATCH_SIZE ) {
+				throw new IllegalArgumentException( "The corpus needs at least " + BATCH_SIZE + " URLs" );
+			}
+			batchBytes = new long[urls.length / BATCH_SIZE];
+			for ( int i = 0; i < batchBytes.length * BATCH_SIZE; i++ ) {
+				batchBytes[i / BATCH_SIZE] += urls[i].getBytes( StandardCharsets.UTF_8 ).length;
+			}
+			System.out.println( corpus );
+		}
+	}
+
+	// State class to hold the position of a thread in the corpus and to count the validated bytes
+	@AuxCounters
+	@State(Scope.Thread)
+	public static class Batches {
+		public long bytes;
+		private int nextBatch = -1;
+
+		@Setup(Level.Iteration)
+		public void reset() {
+			bytes = 0;
+		}
+
+		int next(Corpus corpus) {
+			if ( nextBatch < 0 ) {
+				// the threads start at different batches
+				nextBatch = corpus.threads.getAndIncrement() * 7 % corpus.batchBytes.length;
+			}
+			int batch = nextBatch;
+			nextBatch = ( nextBatch + 1 ) % corpus.batchBytes.length;
+			bytes += corpus.batchBytes[batch];
+			return batch * BATCH_SIZE;
+		}
+	}
+
+	@State(Scope.Thread)
+	public static class ReusedMatcher {
+		Matcher matcher = URLConstraintBenchmark.URL_REGEX.matcher( "" );
+
+		public boolean isValid(String url) {
+			return matcher.reset( url ).matches();
+		}
+	}
+
+	@State(Scope.Thread)
+	public static class FreshMatcher {
+		public boolean isValid(String url) {
+			return URLConstraintBenchmark.URL_REGEX.matcher( url ).matches();
+		}
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(BATCH_SIZE)
+	public void reusedMatcher(ReusedMatcher validator, Corpus corpus, Batches batches, Blackhole blackhole) {
+		int start = batches.next( corpus );
+		for ( int i = start; i < start + BATCH_SIZE; i++ ) {
+			blackhole.consume( validator.isValid( corpus.urls[i] ) );
+		}
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(BATCH_SIZE)
+	public void freshMatcher(FreshMatcher validator, Corpus corpus, Batches batches, Blackhole blackhole) {
+		int start = batches.next( corpus );
+		for ( int i = start; i < start + BATCH_SIZE; i++ ) {
+			blackhole.consume( validator.isValid( corpus.urls[i] ) );
+		}
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(BATCH_SIZE)
+	public void scanner(Corpus corpus, Batches batches, Blackhole blackhole) {
+		int start = batches.next( corpus );
+		for ( int i = start; i < start + BATCH_SIZE; i++ ) {
+			blackhole.consume( URLScanner.isValid( corpus.urls[i] ) );
+		}
+	}
+
+	public static void main(String[] args) throws Exception {
+		int maxThreads = 2 * Runtime.getRuntime().availableProcessors();
+		for ( int threads = 1; threads <= maxThreads; threads *= 2 ) {
+			Options opt = new OptionsBuilder()
+					.include( ".*" + URLBatchValidationBenchmark.class.getSimpleName() + ".*" )
+					.threads( threads )
+					.build();
+			new Runner( opt ).run();
+		}
+	}
+}
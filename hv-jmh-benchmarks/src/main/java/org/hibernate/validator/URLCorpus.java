@@ -0,0 +1,199 @@
+/*
+ * Copyright (c) 2005, 2014, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+
+package org.hibernate.validator;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * A set of URLs for batch validation, either loaded from a file with one URL per line or generated with a given
+ * share of valid URLs. The generated URLs use http, https and ftp, {@value #IDN_HOST_PERCENT}% internationalized
+ * host names, {@value #IPV4_HOST_PERCENT}% IPv4 and {@value #IPV6_HOST_PERCENT}% IPv6 literals,
+ * {@value #QUERY_PERCENT}% have a query string. The number of path segments is geometrically distributed, so most
+ * URLs are short with a long tail. Invalid URLs are valid ones with a single typical mistake.
+ */
+public class URLCorpus {
+	private static final int IDN_HOST_PERCENT = 10;
+	private static final int IPV4_HOST_PERCENT = 5;
+	private static final int IPV6_HOST_PERCENT = 5;
+	private static final int QUERY_PERCENT = 30;
+	private static final double NEXT_PATH_SEGMENT_PROBABILITY = 0.6;
+
+	private static final String[] SYLLABLES = {
+			"ba", "ce", "di", "fo", "gu", "ha", "je", "ki", "lo", "mu", "na", "pe", "ri", "so", "tu", "va", "we", "zi"
+	};
+	private static final String[] IDN_LABELS = { "例子", "测试", "münchen", "bücher", "пример", "παράδειγμα", "日本語" };
+	private static final String[] TOP_LEVEL_DOMAINS = { "com", "org", "net", "de", "io", "co.uk", "测试" };
+	private static final String[] INVALID_CHARACTERS = { " ", "<", "\"", "{", "^", "`", "\\" };
+
+	private final String[] urls;
+	private final int valid;
+	private final long bytes;
+
+	private URLCorpus(String[] urls) {
+		this.urls = urls;
+		int valid = 0;
+		long bytes = 0;
+		for ( String url : urls ) {
+			valid += URLScanner.isValid( url ) ? 1 : 0;
+			bytes += url.getBytes( StandardCharsets.UTF_8 ).length;
+		}
+		this.valid = valid;
+		this.bytes = bytes;
+	}
+
+	public static URLCorpus load(String file) throws IOException {
+		List<String> lines = Files.readAllLines( Paths.get( file ), StandardCharsets.UTF_8 );
+		return new URLCorpus( lines.toArray( new String[lines.size()] ) );
+	}
+
+	public static URLCorpus generate(int size, double validRatio, long seed) {
+		Random random = new Random( seed );
+		String[] urls = new String[size];
+		for ( int i = 0; i < size; i++ ) {
+			String url = validUrl( random );
+			if ( random.nextDouble() >= validRatio ) {
+				String invalidUrl;
+				do {
+					invalidUrl = breakUrl( url, random );
+				}
+				while ( URLScanner.isValid( invalidUrl ) );
+				url = invalidUrl;
+			}
+			urls[i] = url;
+		}
+		return new URLCorpus( urls );
+	}
+
+	public String[] getUrls() {
+		return urls;
+	}
+
+	/**
+	 * @return the size of the URLs in UTF-8
+	 */
+	public long getBytes() {
+		return bytes;
+	}
+
+	@Override
+	public String toString() {
+		return String.format(
+				"%d URLs, %.1f%% valid, %.1f bytes on average",
+				urls.length,
+				100.0 * valid / urls.length,
+				(double) bytes / urls.length
+		);
+	}
+
+	private static String validUrl(Random random) {
+		StringBuilder url = new StringBuilder();
+		int scheme = random.nextInt( 20 );
+		url.append( scheme < 12 ? "http" : scheme < 19 ? "https" : "ftp" ).append( "://" );
+		if ( scheme == 19 && random.nextBoolean() ) {
+			url.append( word( random ) ).append( ':' ).append( word( random ) ).append( '@' );
+		}
+
+		int host = random.nextInt( 100 );
+		if ( host < IDN_HOST_PERCENT ) {
+			url.append( IDN_LABELS[random.nextInt( IDN_LABELS.length )] ).append( '.' )
+					.append( TOP_LEVEL_DOMAINS[random.nextInt( TOP_LEVEL_DOMAINS.length )] );
+		}
+		else if ( host < IDN_HOST_PERCENT + IPV4_HOST_PERCENT ) {
+			url.append( 1 + random.nextInt( 223 ) ).append( '.' ).append( random.nextInt( 256 ) ).append( '.' )
+					.append( random.nextInt( 256 ) ).append( '.' ).append( random.nextInt( 256 ) );
+		}
+		else if ( host < IDN_HOST_PERCENT + IPV4_HOST_PERCENT + IPV6_HOST_PERCENT ) {
+			url.append( "[2001:db8:" ).append( Integer.toHexString( random.nextInt( 0x10000 ) ) ).append( "::" )
+					.append( Integer.toHexString( random.nextInt( 0x10000 ) ) ).append( ']' );
+		}
+		else {
+			if ( random.nextBoolean() ) {
+				url.append( "www." );
+			}
+			url.append( word( random ) ).append( '.' )
+					.append( TOP_LEVEL_DOMAINS[random.nextInt( TOP_LEVEL_DOMAINS.length - 1 )] );
+		}
+		if ( random.nextInt( 10 ) == 0 ) {
+			url.append( ':' ).append( 1024 + random.nextInt( 64512 ) );
+		}
+
+		url.append( '/' );
+		while ( random.nextDouble() < NEXT_PATH_SEGMENT_PROBABILITY ) {
+			url.append( word( random ) );
+			if ( random.nextInt( 10 ) == 0 ) {
+				url.append( "%20" ).append( word( random ) );
+			}
+			url.append( random.nextInt( 4 ) == 0 ? ".html" : "/" );
+		}
+		if ( random.nextInt( 100 ) < QUERY_PERCENT ) {
+			int parameters = 1 + random.nextInt( 5 );
+			for ( int i = 0; i < parameters; i++ ) {
+				url.append( i == 0 ? '?' : '&' ).append( word( random ) ).append( '=' )
+						.append( random.nextInt( 100000 ) );
+			}
+		}
+		if ( random.nextInt( 20 ) == 0 ) {
+			url.append( '#' ).append( word( random ) );
+		}
+		return url.toString();
+	}
+
+	private static String breakUrl(String url, Random random) {
+		switch ( random.nextInt( 5 ) ) {
+			case 0:
+				// missing colon after the scheme
+				return url.replaceFirst( ":", "" );
+			case 1:
+				// invalid percent-encoding
+				return url + "%" + (char) ( 'g' + random.nextInt( 20 ) );
+			case 2:
+				// unclosed IP literal
+				return url.replaceFirst( "://", "://[" );
+			case 3:
+				// missing scheme
+				return url.substring( url.indexOf( ':' ) + 1 );
+			default:
+				int position = url.indexOf( "//" ) + 2 + random.nextInt( url.length() - url.indexOf( "//" ) - 1 );
+				return url.substring( 0, position ) + INVALID_CHARACTERS[random.nextInt( INVALID_CHARACTERS.length )]
+						+ url.substring( position );
+		}
+	}
+
+	private static String word(Random random) {
+		StringBuilder word = new StringBuilder();
+		int syllables = 1 + random.nextInt( 4 );
+		for ( int i = 0; i < syllables; i++ ) {
+			word.append( SYLLABLES[random.nextInt( SYLLABLES.length )] );
+		}
+		return word.toString();
+	}
+}
@@ -0,0 +1,376 @@
+/*
+ * Copyright (c) 2005, 2014, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+package org.hibernate.validator;
+
+/**
+ * Validates URLs against the same set of strings as the {@code URL_REGEX} of {@link URLConstraintBenchmark}, without
+ * backtracking, allocations or exceptions. The input is split at the delimiters of the URL components, each component
+ * is checked in a single pass over its characters using a table of ASCII character classes and range checks for the
+ * other code points.
+ * <p>
+ * Deviations of the regular expression from RFC 3987 are reproduced on purpose, e.g. {@code @} being allowed in host
+ * names, a missing {@code .} after the version of an IPvFuture address or IPv6 addresses with a single group before
+ * {@code ::} followed by five groups being rejected.
+ */
+public final class URLScanner {
+
+	// ASCII character classes, case-insensitive like the regular expression
+	private static final int ALPHA = 1;
+	private static final int SCHEME = 1 << 1;
+	private static final int DIGIT = 1 << 2;
+	private static final int HEX = 1 << 3;
+	private static final int UNRESERVED = 1 << 4;
+	private static final int SUB_DELIM = 1 << 5;
+	private static final int COLON = 1 << 6;
+	private static final int AT = 1 << 7;
+	private static final int SLASH = 1 << 8;
+	private static final int QUESTION_MARK = 1 << 9;
+	private static final int PIPE = 1 << 10;
+
+	private static final int USER_INFO = UNRESERVED | SUB_DELIM | COLON;
+	private static final int REG_NAME = UNRESERVED | SUB_DELIM | AT;
+	private static final int PATH = UNRESERVED | SUB_DELIM | COLON | AT | SLASH;
+	private static final int QUERY = PATH | QUESTION_MARK | PIPE;
+	private static final int FRAGMENT = PATH | QUESTION_MARK;
+	private static final int IP_FUTURE = UNRESERVED | SUB_DELIM | COLON;
+
+	// classes of the other code points
+	private static final int UCS = 1;
+	private static final int PRIVATE = 1 << 1;
+
+	private static final int[] ASCII_CLASSES = new int[128];
+
+	static {
+		for ( char c = 'a'; c <= 'z'; c++ ) {
+			add( c, ALPHA | SCHEME | UNRESERVED );
+			add( Character.toUpperCase( c ), ALPHA | SCHEME | UNRESERVED );
+		}
+		for ( char c = '0'; c <= '9'; c++ ) {
+			add( c, SCHEME | DIGIT | HEX | UNRESERVED );
+		}
+		for ( char c = 'a'; c <= 'f'; c++ ) {
+			add( c, HEX );
+			add( Character.toUpperCase( c ), HEX );
+		}
+		add( '-', SCHEME | UNRESERVED );
+		add( '.', SCHEME | UNRESERVED );
+		add( '_', UNRESERVED );
+		add( '~', UNRESERVED );
+		for ( char c : "!$&'()*+,;=".toCharArray() ) {
+			add( c, SUB_DELIM );
+		}
+		add( '+', SCHEME );
+		add( ':', COLON );
+		add( '@', AT );
+		add( '/', SLASH );
+		add( '?', QUESTION_MARK );
+		add( '|', PIPE );
+	}
+
+	private URLScanner() {
+	}
+
+	public static boolean isValid(String url) {
+		int length = url.length();
+		if ( length == 0 || !is( url.charAt( 0 ), ALPHA ) ) {
+			return false;
+		}
+		int schemeEnd = 1;
+		while ( schemeEnd < length && is( url.charAt( schemeEnd ), SCHEME ) ) {
+			schemeEnd++;
+		}
+		if ( schemeEnd == length || url.charAt( schemeEnd ) != ':' ) {
+			return false;
+		}
+
+		// neither the hierarchical part nor the query contain '#', the hierarchical part doesn't contain '?'
+		int hierPartEnd = schemeEnd + 1;
+		while ( hierPartEnd < length && url.charAt( hierPartEnd ) != '?' && url.charAt( hierPartEnd ) != '#' ) {
+			hierPartEnd++;
+		}
+		int queryEnd = hierPartEnd;
+		if ( hierPartEnd < length && url.charAt( hierPartEnd ) == '?' ) {
+			queryEnd = indexOf( url, '#', hierPartEnd + 1, length );
+			if ( !scan( url, hierPartEnd + 1, queryEnd, QUERY, UCS | PRIVATE ) ) {
+				return false;
+			}
+		}
+		if ( queryEnd < length && !scan( url, queryEnd + 1, length, FRAGMENT, UCS ) ) {
+			return false;
+		}
+		return isValidHierPart( url, schemeEnd + 1, hierPartEnd );
+	}
+
+	private static boolean isValidHierPart(String url, int start, int end) {
+		if ( start == end ) {
+			return true;
+		}
+		// path-rootless
+		if ( url.charAt( start ) != '/' ) {
+			return scan( url, start, end, PATH, UCS );
+		}
+		// path-absolute, which must not start with "//"
+		if ( start + 1 == end || url.charAt( start + 1 ) != '/' ) {
+			return scan( url, start + 1, end, PATH, UCS );
+		}
+		// authority and path-abempty
+		int authorityEnd = indexOf( url, '/', start + 2, end );
+		return isValidAuthority( url, start + 2, authorityEnd ) && scan( url, authorityEnd, end, PATH, UCS );
+	}
+
+	/**
+	 * The user info can't contain '@', but the host name can, so the user info can only end at the first '@'.
+	 */
+	private static boolean isValidAuthority(String url, int start, int end) {
+		if ( isValidHostAndPort( url, start, end ) ) {
+			return true;
+		}
+		int at = indexOf( url, '@', start, end );
+		return at < end && scan( url, start, at, USER_INFO, UCS ) && isValidHostAndPort( url, at + 1, end );
+	}
+
+	/**
+	 * An IPv4 address is a valid host name as well, so it doesn't need to be checked separately.
+	 */
+	private static boolean isValidHostAndPort(String url, int start, int end) {
+		int hostEnd;
+		if ( start < end && url.charAt( start ) == '[' ) {
+			int closingBracket = indexOf( url, ']', start + 1, end );
+			if ( closingBracket == end || !isValidIpLiteral( url, start + 1, closingBracket ) ) {
+				return false;
+			}
+			hostEnd = closingBracket + 1;
+		}
+		else {
+			hostEnd = indexOf( url, ':', start, end );
+			if ( !scan( url, start, hostEnd, REG_NAME, UCS ) ) {
+				return false;
+			}
+		}
+		if ( hostEnd == end ) {
+			return true;
+		}
+		if ( url.charAt( hostEnd ) != ':' ) {
+			return false;
+		}
+		for ( int i = hostEnd + 1; i < end; i++ ) {
+			if ( !is( url.charAt( i ), DIGIT ) ) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static boolean isValidIpLiteral(String url, int start, int end) {
+		if ( start < end && ( url.charAt( start ) == 'v' || url.charAt( start ) == 'V' ) ) {
+			// at least one hex digit and at least one further character
+			if ( end - start < 3 || !is( url.charAt( start + 1 ), HEX ) ) {
+				return false;
+			}
+			for ( int i = start + 2; i < end; i++ ) {
+				if ( !is( url.charAt( i ), IP_FUTURE ) ) {
+					return false;
+				}
+			}
+			return true;
+		}
+		return isValidIpv6( url, start, end );
+	}
+
+	private static boolean isValidIpv6(String url, int start, int end) {
+		int doubleColon = start;
+		while ( doubleColon < end - 1 && !( url.charAt( doubleColon ) == ':' && url.charAt( doubleColon + 1 ) == ':' ) ) {
+			doubleColon++;
+		}
+		if ( doubleColon >= end - 1 ) {
+			return countGroups( url, start, end, true ) == 8;
+		}
+
+		int before = doubleColon == start ? 0 : countGroups( url, start, doubleColon, false );
+		int after = doubleColon + 2 == end ? 0 : countGroups( url, doubleColon + 2, end, true );
+		if ( before < 0 || after < 0 ) {
+			return false;
+		}
+		// the combinations allowed by the alternatives of the regular expression
+		switch ( after ) {
+			case 0:
+				return before <= 7;
+			case 1:
+				return before <= 6;
+			case 2:
+				return before <= 5;
+			case 3:
+				return before <= 4;
+			case 4:
+				return before <= 3;
+			case 5:
+				return before == 0 || before == 2;
+			case 6:
+				return before <= 1;
+			case 7:
+				return before == 0;
+			default:
+				return false;
+		}
+	}
+
+	/**
+	 * @return the number of 16 bit groups separated by single colons, an IPv4 address at the end counting as two
+	 * groups, -1 if the range contains anything else
+	 */
+	private static int countGroups(String url, int start, int end, boolean ipv4Allowed) {
+		int groups = 0;
+		int groupStart = start;
+		while ( true ) {
+			int groupEnd = indexOf( url, ':', groupStart, end );
+			int length = groupEnd - groupStart;
+			if ( length >= 1 && length <= 4 && isHex( url, groupStart, groupEnd ) ) {
+				groups++;
+			}
+			else if ( groupEnd == end && ipv4Allowed && isValidIpv4( url, groupStart, end ) ) {
+				groups += 2;
+			}
+			else {
+				return -1;
+			}
+			if ( groupEnd == end ) {
+				return groups;
+			}
+			groupStart = groupEnd + 1;
+		}
+	}
+
+	private static boolean isHex(String url, int start, int end) {
+		for ( int i = start; i < end; i++ ) {
+			if ( !is( url.charAt( i ), HEX ) ) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Four decimal octets without leading zeros.
+	 */
+	private static boolean isValidIpv4(String url, int start, int end) {
+		int octets = 0;
+		int octetStart = start;
+		while ( true ) {
+			int octetEnd = indexOf( url, '.', octetStart, end );
+			int length = octetEnd - octetStart;
+			if ( length < 1 || length > 3 || ( length > 1 && url.charAt( octetStart ) == '0' ) ) {
+				return false;
+			}
+			int value = 0;
+			for ( int i = octetStart; i < octetEnd; i++ ) {
+				char c = url.charAt( i );
+				if ( !is( c, DIGIT ) ) {
+					return false;
+				}
+				value = value * 10 + c - '0';
+			}
+			if ( value > 255 ) {
+				return false;
+			}
+			octets++;
+			if ( octetEnd == end ) {
+				return octets == 4;
+			}
+			octetStart = octetEnd + 1;
+		}
+	}
+
+	/**
+	 * Checks that the range consists of percent-encoded octets and characters of the given classes.
+	 */
+	private static boolean scan(String url, int start, int end, int asciiClasses, int otherClasses) {
+		int i = start;
+		while ( i < end ) {
+			char c = url.charAt( i );
+			if ( c == '%' ) {
+				if ( i + 2 >= end || !is( url.charAt( i + 1 ), HEX ) || !is( url.charAt( i + 2 ), HEX ) ) {
+					return false;
+				}
+				i += 3;
+			}
+			else if ( c < 128 ) {
+				if ( ( ASCII_CLASSES[c] & asciiClasses ) == 0 ) {
+					return false;
+				}
+				i++;
+			}
+			else {
+				int codePoint = c;
+				if ( Character.isHighSurrogate( c ) && i + 1 < end && Character.isLowSurrogate( url.charAt( i + 1 ) ) ) {
+					codePoint = Character.toCodePoint( c, url.charAt( i + 1 ) );
+				}
+				if ( ( classOf( codePoint ) & otherClasses ) == 0 ) {
+					return false;
+				}
+				i += Character.charCount( codePoint );
+			}
+		}
+		return true;
+	}
+
+	private static int classOf(int codePoint) {
+		if ( codePoint >= 0xA0 && codePoint <= 0xD7FF
+				|| codePoint >= 0xF900 && codePoint <= 0xFDCF
+				|| codePoint >= 0xFDF0 && codePoint <= 0xFFEF
+				|| codePoint >= 0xE1000 && codePoint <= 0xEFFFD ) {
+			return UCS;
+		}
+		// 0x10000-0x1FFFD up to 0xD0000-0xDFFFD
+		if ( codePoint >= 0x10000 && codePoint < 0xE0000 ) {
+			return ( codePoint & 0xFFFF ) <= 0xFFFD ? UCS : 0;
+		}
+		if ( codePoint >= 0xE000 && codePoint <= 0xF8FF
+				|| codePoint >= 0xF0000 && codePoint <= 0xFFFFD
+				|| codePoint >= 0x100000 && codePoint <= 0x10FFFD ) {
+			return PRIVATE;
+		}
+		return 0;
+	}
+
+	private static boolean is(char c, int asciiClasses) {
+		return c < 128 && ( ASCII_CLASSES[c] & asciiClasses ) != 0;
+	}
+
+	/**
+	 * @return the index of the first occurrence of the given character in the range, {@code end} if there is none
+	 */
+	private static int indexOf(String url, char c, int start, int end) {
+		int i = start;
+		while ( i < end && url.charAt( i ) != c ) {
+			i++;
+		}
+		return i;
+	}
+
+	private static void add(char c, int asciiClasses) {
+		ASCII_CLASSES[c] |= asciiClasses;
+	}
+}
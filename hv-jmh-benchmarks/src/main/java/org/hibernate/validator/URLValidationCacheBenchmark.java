@@ -0,0 +1,216 @@
+/*
+ * Copyright (c) 2005, 2014, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+
+package org.hibernate.validator;
+
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Predicate;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.BenchmarkParams;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Validates URLs with and without a {@link MemoizingValidator} in front of the validators of
+ * {@link URLConstraintBenchmark}. With probability {@code hitRatio} one of {@value #HOT_URLS} frequent URLs is
+ * drawn from a Zipf distribution, otherwise the next of the remaining URLs of the thread, which have all been
+ * evicted by the time they come up again. So with a {@code hitRatio} of 0 each call pays for a miss and an
+ * eviction. With {@code -prof metrics} the actual hit ratio and the evictions per lookup of each iteration are
+ * reported. Run with {@code -t} to see
+ * the contention on the segments, {@link #main(String[])} runs 1 up to 2 x cores threads.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@SuppressWarnings("unused")
+public class URLValidationCacheBenchmark {
+	private static final int HOT_URLS = 1000;
+	private static final int COLD_URLS_PER_THREAD = 20_000;
+	private static final int CACHE_SIZE = 10_000;
+	private static final int MAX_KEY_LENGTH = 2048;
+	private static final double ZIPF_EXPONENT = 1.0;
+	private static final int SEQUENCE_LENGTH = 1 << 16;
+
+	@State(Scope.Benchmark)
+	public static class URLs {
+		@Param({ "0", "0.5", "0.95" })
+		double hitRatio;
+
+		/**
+		 * Either {@code regExp} or {@code urlConstructor}.
+		 */
+		@Param({ "regExp", "urlConstructor" })
+		String validator;
+
+		String[] hotUrls;
+		String[] coldUrls;
+		double[] hotUrlDistribution;
+		Predicate<String> uncached;
+		MemoizingValidator cached;
+		AtomicInteger threads = new AtomicInteger();
+
+		@Setup
+		public void setUp(BenchmarkParams params) {
+			// a separate range of cold URLs for each thread
+			int coldUrlCount = params.getThreads() * COLD_URLS_PER_THREAD;
+			// the generated URLs contain duplicates, which would be hits
+			Set<String> distinctUrls = new LinkedHashSet<>();
+			for ( long seed = 42L; distinctUrls.size() < HOT_URLS + coldUrlCount; seed++ ) {
+				distinctUrls.addAll( Arrays.asList( URLCorpus.generate( coldUrlCount, 0.9, seed ).getUrls() ) );
+			}
+			String[] urls = distinctUrls.toArray( new String[distinctUrls.size()] );
+			hotUrls = Arrays.copyOfRange( urls, 0, HOT_URLS );
+			coldUrls = Arrays.copyOfRange( urls, HOT_URLS, HOT_URLS + coldUrlCount );
+
+			// cumulative Zipf distribution of the hot URLs
+			hotUrlDistribution = new double[HOT_URLS];
+			double sum = 0;
+			for ( int i = 0; i < HOT_URLS; i++ ) {
+				sum += 1 / Math.pow( i + 1, ZIPF_EXPONENT );
+				hotUrlDistribution[i] = sum;
+			}
+			for ( int i = 0; i < HOT_URLS; i++ ) {
+				hotUrlDistribution[i] /= sum;
+			}
+
+			switch ( validator ) {
+				case "regExp":
+					uncached = new URLConstraintBenchmark.ValidateByRegExp()::isValid;
+					break;
+				case "urlConstructor":
+					uncached = new URLConstraintBenchmark.ValidateByURLConstructor()::isValid;
+					break;
+				default:
+					throw new IllegalArgumentException( "Unknown validator: " + validator );
+			}
+			cached = new MemoizingValidator(
+					uncached, CACHE_SIZE, MAX_KEY_LENGTH, Runtime.getRuntime().availableProcessors()
+			);
+		}
+
+		@TearDown(Level.Iteration)
+		public void recordStatistics() {
+			long lookups = cached.getHits() + cached.getMisses();
+			if ( lookups > 0 ) {
+				MetricsProfiler.gauge( "cache.hitRatio", (double) cached.getHits() / lookups, "hits/lookup" );
+				MetricsProfiler.gauge(
+						"cache.evictions", (double) cached.getEvictions() / lookups, "evictions/lookup"
+				);
+			}
+			cached.resetStatistics();
+		}
+
+		private String hotUrl(Random random) {
+			int index = Arrays.binarySearch( hotUrlDistribution, random.nextDouble() );
+			return hotUrls[index >= 0 ? index : Math.min( -index - 1, HOT_URLS - 1 )];
+		}
+	}
+
+	// State class to hold the hot URLs validated by a thread, drawn up front to keep the random numbers out of the loop
+	@State(Scope.Thread)
+	public static class URLSequence {
+		// null for the next cold URL
+		String[] sequence;
+		int next;
+		int coldUrlOffset;
+		int nextColdUrl;
+
+		String next(URLs urls) {
+			if ( sequence == null ) {
+				draw( urls );
+			}
+			String url = sequence[next];
+			next = ( next + 1 ) & ( SEQUENCE_LENGTH - 1 );
+			if ( url == null ) {
+				url = urls.coldUrls[coldUrlOffset + nextColdUrl];
+				nextColdUrl = ( nextColdUrl + 1 ) % COLD_URLS_PER_THREAD;
+			}
+			return url;
+		}
+
+		/**
+		 * Each thread cycles through its own {@value #COLD_URLS_PER_THREAD} cold URLs, more than fit into the cache.
+		 * Sharing the cold URLs would let the threads run in a convoy, hitting the entries of each other.
+		 */
+		private void draw(URLs urls) {
+			int thread = urls.threads.getAndIncrement();
+			Random random = new Random( thread );
+			coldUrlOffset = thread * COLD_URLS_PER_THREAD;
+			if ( coldUrlOffset >= urls.coldUrls.length ) {
+				throw new IllegalStateException( "No cold URLs left for thread " + thread );
+			}
+			sequence = new String[SEQUENCE_LENGTH];
+			for ( int i = 0; i < SEQUENCE_LENGTH; i++ ) {
+				if ( random.nextDouble() < urls.hitRatio ) {
+					sequence[i] = urls.hotUrl( random );
+				}
+			}
+		}
+	}
+
+	@Benchmark
+	public boolean uncached(URLs urls, URLSequence sequence) {
+		return urls.uncached.test( sequence.next( urls ) );
+	}
+
+	@Benchmark
+	public boolean cached(URLs urls, URLSequence sequence) {
+		return urls.cached.isValid( sequence.next( urls ) );
+	}
+
+	public static void main(String[] args) throws Exception {
+		int maxThreads = 2 * Runtime.getRuntime().availableProcessors();
+		for ( int threads = 1; threads <= maxThreads; threads *= 2 ) {
+			Options opt = new OptionsBuilder()
+					.include( ".*" + URLValidationCacheBenchmark.class.getSimpleName() + ".*" )
+					.threads( threads )
+					.addProfiler( MetricsProfiler.class )
+					.build();
+			new Runner( opt ).run();
+		}
+	}
+}
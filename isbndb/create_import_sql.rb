@@ -18,7 +18,6 @@ end
 @author_inserts = Array.new
 @book_author_inserts = Array.new
 
-@book_id_to_author_id = Hash.new
 @author_id_to_int_id = Hash.new
 
 json_file = ARGV[0]
@@ -29,22 +28,21 @@ data = JSON.parse(IO.read(json_file))
 data.each do |book|
   values = {:book_id => @book_id, :isbn => book['isbn13'], :title => book['title'].gsub("'", "''"), :publisher => book['publisher_text'].gsub("'", "''")  }
   @book_inserts << BOOK_INSERT_SQL % values
-  @book_id += 1
 
-  book['author_data'].each do |author|
+  author_ids = book['author_data'].map do |author|
     author_id = get_author_id author['id']
     if author_id == @author_id
       values = {:author_id => author_id, :name => author['name'].gsub("'", "''")}
       @author_inserts << AUTHOR_INSERT_SQL % values
       @author_id += 1
     end
-    @book_id_to_author_id[@book_id] = author_id
+    author_id
   end
-end
-
-@book_id_to_author_id.each do |key, value|
-  values = {:book_id => key, :author_id => value}
-  @book_author_inserts << BOOK_AUTHOR_SQL % values
+  # authors listed twice for the same book are only linked once
+  author_ids.uniq.each do |author_id|
+    @book_author_inserts << BOOK_AUTHOR_SQL % {:book_id => @book_id, :author_id => author_id}
+  end
+  @book_id += 1
 end
 
 File.open('import.sql', 'w') do |f|